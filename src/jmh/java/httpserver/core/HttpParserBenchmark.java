@@ -0,0 +1,142 @@
+package httpserver.core;
+
+import httpserver.util.HttpParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/*
+ * Request head parsing on the blocking path (HttpParser) and the NIO path (HttpRequestDecoder) for
+ * the same request shapes. Run with -prof gc to see the allocation per parsed request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpParserBenchmark {
+
+    public enum Shape {
+        MINIMAL_GET,
+        BROWSER_GET,
+        LONG_URI,
+        LARGE_HEADERS
+    }
+
+    @Param
+    public Shape shape;
+
+    private byte[] request;
+    private ByteArrayInputStream stream;
+    private HttpHeaders headers;
+    private HttpRequestDecoder decoder;
+    private ByteBuffer chunk;
+
+    @Setup
+    public void setup() {
+        request = request(shape).getBytes(US_ASCII);
+        stream = new ByteArrayInputStream(request);
+        headers = new HttpHeaders();
+        decoder = new HttpRequestDecoder(1024, BufferPool.heap());
+        chunk = ByteBuffer.wrap(request);
+    }
+
+    @Benchmark
+    public HttpRequest parser() throws HttpParsingException {
+        stream.reset();
+        return HttpParser.parseHttpRequest(stream, 1024);
+    }
+
+    /* As a connection parses: one HttpHeaders reused for every request. */
+    @Benchmark
+    public HttpRequest parserReusingHeaders() throws HttpParsingException {
+        stream.reset();
+        return HttpParser.parseHttpRequest(stream, 1024, headers);
+    }
+
+    /*
+     * Decodes the head, then reads every header value, as a handler looking at all of them would.
+     * A head that fails to decode would measure the error path, so it stops the run.
+     */
+    @Benchmark
+    public void decoder(Blackhole blackhole) {
+        chunk.clear();
+        HttpRequestDecoder.Status status = decoder.offer(chunk);
+        if (status != HttpRequestDecoder.Status.REQUEST_COMPLETE)
+            throw new IllegalStateException("Request did not decode: " + status);
+        HttpRequest decoded = decoder.getRequest();
+        blackhole.consume(decoded.getRequestTarget());
+        HttpHeaders decodedHeaders = decoded.getHeaders();
+        for (int i = 0; i < decodedHeaders.size(); i++)
+            blackhole.consume(decodedHeaders.getValue(i));
+        decoder.next();
+    }
+
+    static String request(Shape shape) {
+        switch (shape) {
+            case MINIMAL_GET:
+                return "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            case BROWSER_GET:
+                return "GET /css/site.css?v=20240101 HTTP/1.1\r\n" +
+                        "Host: www.example.com\r\n" +
+                        "Connection: keep-alive\r\n" +
+                        "Cache-Control: max-age=0\r\n" +
+                        "sec-ch-ua: \"Chromium\";v=\"124\", \"Google Chrome\";v=\"124\", \"Not-A.Brand\";v=\"99\"\r\n" +
+                        "sec-ch-ua-mobile: ?0\r\n" +
+                        "sec-ch-ua-platform: \"Linux\"\r\n" +
+                        "Upgrade-Insecure-Requests: 1\r\n" +
+                        "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36\r\n" +
+                        "Accept: text/css,*/*;q=0.1\r\n" +
+                        "Sec-Fetch-Site: same-origin\r\n" +
+                        "Sec-Fetch-Mode: no-cors\r\n" +
+                        "Sec-Fetch-User: ?1\r\n" +
+                        "Sec-Fetch-Dest: style\r\n" +
+                        "Referer: https://www.example.com/index.html\r\n" +
+                        "Accept-Encoding: gzip, deflate, br, zstd\r\n" +
+                        "Accept-Language: en-GB,en-US;q=0.9,en;q=0.8\r\n" +
+                        "Cookie: session=6f1c2a9e4b7d4c0e9a3f; theme=dark; consent=yes\r\n" +
+                        "If-None-Match: \"18c6b1f0a00-1f4\"\r\n" +
+                        "If-Modified-Since: Mon, 01 Jan 2024 00:00:00 GMT\r\n" +
+                        "Priority: u=0, i\r\n" +
+                        "\r\n";
+            case LONG_URI:
+                return "GET /search?q=" + repeat('x', 1900) + "&page=2 HTTP/1.1\r\n" +
+                        "Host: www.example.com\r\n" +
+                        "Accept: */*\r\n" +
+                        "\r\n";
+            case LARGE_HEADERS:
+                return "GET /api/items HTTP/1.1\r\n" +
+                        "Host: api.example.com\r\n" +
+                        "Authorization: Bearer " + repeat('a', 2000) + "\r\n" +
+                        "Cookie: " + repeat('c', 4000) + "\r\n" +
+                        "X-Forwarded-For: 203.0.113.7, 198.51.100.23, 192.0.2.44\r\n" +
+                        "X-Request-Context: " + repeat('r', 3000) + "\r\n" +
+                        "\r\n";
+            default:
+                throw new IllegalArgumentException(shape.name());
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++)
+            builder.append(c);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Building and encoding a response as a handler and connection do: headers, a String message encoded
+ * to UTF-8, then the head encoded next to the body buffers. Run with -prof gc to see the allocation
+ * per response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncoderBenchmark {
+
+    @Param({"64", "65536"})
+    public int bodySize;
+
+    private String message;
+    private ByteBuffer body;
+    private ResponseEncoder encoder;
+
+    @Setup
+    public void setup() {
+        char[] content = new char[bodySize];
+        Arrays.fill(content, 'x');
+        message = new String(content);
+        body = ByteBuffer.allocateDirect(bodySize);
+        encoder = new ResponseEncoder(BufferPool.direct());
+    }
+
+    @Benchmark
+    public void message(Blackhole blackhole) {
+        HttpResponse response = response();
+        response.setMessage(message);
+        encode(response, blackhole);
+    }
+
+    /* A body already held as bytes, like a cached static file. */
+    @Benchmark
+    public void buffer(Blackhole blackhole) {
+        HttpResponse response = response();
+        response.setBody(body);
+        encode(response, blackhole);
+    }
+
+    private static HttpResponse response() {
+        HttpResponse response = new HttpResponse(HttpVersion.HTTP_1_1);
+        response.getHeaders().put("Content-Type", "text/html; charset=UTF-8");
+        response.getHeaders().put("ETag", "\"18c6b1f0a00-1f4\"");
+        response.getHeaders().put("Last-Modified", "Mon, 01 Jan 2024 00:00:00 GMT");
+        response.getHeaders().put("Connection", "keep-alive");
+        return response;
+    }
+
+    private void encode(HttpResponse response, Blackhole blackhole) {
+        blackhole.consume(encoder.encode(response));
+        blackhole.consume(response.getBodyBuffers());
+        encoder.reset();
+    }
+}
@@ -0,0 +1,395 @@
+package httpserver.load;
+
+import httpserver.SimpleHttpServer;
+import httpserver.config.Configuration;
+import httpserver.config.ConfigurationManager;
+import httpserver.config.ServerEngine;
+import httpserver.util.Json;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Drives a server over loopback and reports throughput and latency percentiles. Unless --host is
+ * given, the server is started in this JVM from --config with a free port and the given --engine.
+ *
+ * Each connection runs on its own thread. Without --rate the load is closed-loop: a connection sends
+ * its next request as soon as the previous response arrives. With --rate the load is open-loop: every
+ * request has an intended send time on a fixed schedule, and its latency is measured from that time,
+ * so a stalled server is charged for the requests it kept waiting (coordinated omission). Service time
+ * (actual send to response) is reported alongside.
+ *
+ *   --connections 64 --duration 30 --warmup 5 --rate 20000
+ *   --request "GET / 90" --request "GET /missing 10" --keep-alive true --requests-per-connection 0
+ *   --engine NIO --config src/main/resources/http.conf --output results.json --label some-commit
+ */
+public class LoadGenerator {
+
+    private static final Pattern REQUEST_SPEC = Pattern.compile("(?:([A-Z]+)\\s+)?(\\S+)(?:\\s+(\\d+))?");
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final double rate;
+    private final boolean keepAlive;
+    private final int requestsPerConnection;
+    private final List<byte[]> requests = new ArrayList<>();
+    private final List<Boolean> headRequests = new ArrayList<>();
+    private final List<String> requestLines = new ArrayList<>();
+    private int[] cumulativeWeights;
+
+    private LoadGenerator(String host, int port, Map<String, List<String>> options) {
+        this.host = host;
+        this.port = port;
+        this.connections = Integer.parseInt(option(options, "connections", "64"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option(options, "duration", "30")));
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option(options, "warmup", "5")));
+        this.rate = Double.parseDouble(option(options, "rate", "0"));
+        this.keepAlive = Boolean.parseBoolean(option(options, "keep-alive", "true"));
+        this.requestsPerConnection = Integer.parseInt(option(options, "requests-per-connection", "0"));
+        List<String> mix = options.containsKey("request") ? options.get("request") : Collections.singletonList("GET /");
+        cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        for (int i = 0; i < mix.size(); i++) {
+            Matcher spec = REQUEST_SPEC.matcher(mix.get(i).trim());
+            if (!spec.matches())
+                throw new IllegalArgumentException("Expected [METHOD] target [weight], got: " + mix.get(i));
+            String method = spec.group(1) != null ? spec.group(1) : "GET";
+            String target = spec.group(2);
+            int weight = spec.group(3) != null ? Integer.parseInt(spec.group(3)) : 1;
+            String request = method + " " + target + " HTTP/1.1\r\nHost: " + host + ":" + port
+                    + "\r\nUser-Agent: LoadGenerator\r\nAccept: */*\r\n"
+                    + (keepAlive ? "" : "Connection: close\r\n") + "\r\n";
+            requests.add(request.getBytes(StandardCharsets.US_ASCII));
+            headRequests.add(method.equals("HEAD"));
+            requestLines.add(method + " " + target + " (" + weight + ")");
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> options = parse(args);
+        String host = option(options, "host", null);
+        int port;
+        if (host == null) {
+            host = "127.0.0.1";
+            port = startServer(options);
+        } else {
+            port = Integer.parseInt(option(options, "port", "8080"));
+        }
+        LoadGenerator generator = new LoadGenerator(host, port, options);
+        Map<String, Object> results = generator.run();
+        results.put("label", option(options, "label", ""));
+        String json = Json.stringifyPretty(Json.toJson(results));
+        String output = option(options, "output", null);
+        if (output != null)
+            Files.write(Paths.get(output), json.getBytes(StandardCharsets.UTF_8));
+        System.out.println(json);
+        System.exit(0);
+    }
+
+    private static int startServer(Map<String, List<String>> options) throws IOException, InterruptedException {
+        ConfigurationManager.getInstance().loadConfigurationFile(option(options, "config", "src/main/resources/http.conf"));
+        Configuration conf = ConfigurationManager.getInstance().getCurrentConfiguration();
+        try (ServerSocket probe = new ServerSocket(0)) {
+            conf.setPort(probe.getLocalPort());
+        }
+        conf.setEngine(ServerEngine.valueOf(option(options, "engine", conf.getEngine().name())));
+        conf.setMaxKeepAliveRequests(Integer.MAX_VALUE);
+        SimpleHttpServer.start(conf);
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", conf.getPort()), 100);
+                return conf.getPort();
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IOException("Server did not start on port " + conf.getPort());
+    }
+
+    private Map<String, Object> run() throws InterruptedException {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        Worker[] workers = new Worker[connections];
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            /* each connection gets an equal share of the rate, phase-shifted so sends are spread out */
+            long interval = rate > 0 ? (long) (1e9 * connections / rate) : 0;
+            workers[i] = new Worker(i, start + interval * i / connections, interval, measureStart, end, done);
+            workers[i].start();
+        }
+        done.await();
+
+        LatencyHistogram latency = new LatencyHistogram();
+        LatencyHistogram service = new LatencyHistogram();
+        Map<Integer, Long> statusCodes = new TreeMap<>();
+        long errors = 0;
+        long reconnects = 0;
+        for (Worker worker : workers) {
+            latency.merge(worker.latency);
+            service.merge(worker.service);
+            errors += worker.errors;
+            reconnects += worker.connects;
+            for (Map.Entry<Integer, Long> status : worker.statusCodes.entrySet())
+                statusCodes.merge(status.getKey(), status.getValue(), Long::sum);
+        }
+
+        double seconds = durationNanos / 1e9;
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("host", host);
+        settings.put("port", port);
+        settings.put("connections", connections);
+        settings.put("durationSeconds", seconds);
+        settings.put("warmupSeconds", warmupNanos / 1e9);
+        settings.put("mode", rate > 0 ? "open-loop" : "closed-loop");
+        settings.put("rate", rate);
+        settings.put("keepAlive", keepAlive);
+        settings.put("requestsPerConnection", requestsPerConnection);
+        settings.put("requests", requestLines);
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("timestamp", System.currentTimeMillis());
+        results.put("settings", settings);
+        results.put("requests", service.getCount());
+        results.put("errors", errors);
+        results.put("connects", reconnects);
+        results.put("throughput", Math.round(service.getCount() / seconds * 10) / 10.0);
+        results.put("statusCodes", statusCodes);
+        results.put("latencyUnit", "microseconds");
+        /* in closed-loop mode there is no schedule, so latency and service time are the same thing */
+        results.put("latency", (rate > 0 ? latency : service).summary());
+        results.put("serviceTime", service.summary());
+        return results;
+    }
+
+    private int pick(SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i])
+                return i;
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    private class Worker extends Thread {
+
+        private final long firstSend;
+        private final long interval;
+        private final long measureStart;
+        private final long end;
+        private final CountDownLatch done;
+        private final SplittableRandom random;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram service = new LatencyHistogram();
+        private final Map<Integer, Long> statusCodes = new TreeMap<>();
+        private final byte[] scratch = new byte[8192];
+        private long errors;
+        private long connects;
+
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private int sentOnConnection;
+
+        Worker(int id, long firstSend, long interval, long measureStart, long end, CountDownLatch done) {
+            super("load-" + id);
+            setDaemon(true);
+            this.firstSend = firstSend;
+            this.interval = interval;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.done = done;
+            this.random = new SplittableRandom(id);
+        }
+
+        @Override
+        public void run() {
+            try {
+                long intended = firstSend;
+                while (true) {
+                    long now = System.nanoTime();
+                    if (interval > 0 && intended > now) {
+                        TimeUnit.NANOSECONDS.sleep(intended - now);
+                        now = System.nanoTime();
+                    } else if (interval == 0) {
+                        intended = now;
+                    }
+                    if (now - end >= 0)
+                        break;
+                    int index = pick(random);
+                    long sent = System.nanoTime();
+                    int status = exchange(index);
+                    long completed = System.nanoTime();
+                    if (intended - measureStart >= 0) {
+                        if (status < 0) {
+                            errors++;
+                        } else {
+                            statusCodes.merge(status, 1L, Long::sum);
+                            latency.record(TimeUnit.NANOSECONDS.toMicros(completed - intended));
+                            service.record(TimeUnit.NANOSECONDS.toMicros(completed - sent));
+                        }
+                    }
+                    intended += interval;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+                done.countDown();
+            }
+        }
+
+        /* Sends one request and reads the whole response; the status code, or -1 on a failure. */
+        private int exchange(int index) {
+            try {
+                if (socket == null)
+                    connect();
+                out.write(requests.get(index));
+                out.flush();
+                sentOnConnection++;
+                ResponseHead head = readHead();
+                readBody(head, headRequests.get(index));
+                if (!keepAlive || head.close || (requestsPerConnection > 0 && sentOnConnection >= requestsPerConnection))
+                    disconnect();
+                return head.status;
+            } catch (IOException e) {
+                disconnect();
+                return -1;
+            }
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(30000);
+            socket.connect(new InetSocketAddress(host, port), 5000);
+            in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            out = socket.getOutputStream();
+            sentOnConnection = 0;
+            connects++;
+        }
+
+        private void disconnect() {
+            if (socket == null)
+                return;
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            socket = null;
+        }
+
+        private ResponseHead readHead() throws IOException {
+            ResponseHead head = new ResponseHead();
+            String statusLine = readLine();
+            int space = statusLine.indexOf(' ');
+            if (space < 0)
+                throw new IOException("Malformed status line: " + statusLine);
+            head.status = Integer.parseInt(statusLine.substring(space + 1, Math.min(statusLine.length(), space + 4)));
+            head.close = statusLine.startsWith("HTTP/1.0");
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon < 0)
+                    continue;
+                String name = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length"))
+                    head.contentLength = Long.parseLong(value);
+                else if (name.equalsIgnoreCase("Transfer-Encoding"))
+                    head.chunked = value.equalsIgnoreCase("chunked");
+                else if (name.equalsIgnoreCase("Connection"))
+                    head.close = value.equalsIgnoreCase("close");
+            }
+            return head;
+        }
+
+        private void readBody(ResponseHead head, boolean headRequest) throws IOException {
+            if (headRequest || head.status == 304 || head.status == 204 || head.status / 100 == 1)
+                return;
+            if (head.chunked) {
+                long size;
+                while ((size = Long.parseLong(readLine().split(";", 2)[0].trim(), 16)) > 0) {
+                    skip(size);
+                    readLine();
+                }
+                while (!readLine().isEmpty()) {
+                }
+            } else if (head.contentLength >= 0) {
+                skip(head.contentLength);
+            } else {
+                while (in.read(scratch) >= 0) {
+                }
+                head.close = true;
+            }
+        }
+
+        private void skip(long count) throws IOException {
+            while (count > 0) {
+                int read = in.read(scratch, 0, (int) Math.min(scratch.length, count));
+                if (read < 0)
+                    throw new EOFException();
+                count -= read;
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0)
+                    throw new EOFException();
+                if (c != '\r')
+                    line.append((char) c);
+            }
+            return line.toString();
+        }
+    }
+
+    private static final class ResponseHead {
+        private int status;
+        private long contentLength = -1;
+        private boolean chunked;
+        private boolean close;
+    }
+
+    private static Map<String, List<String>> parse(String[] args) {
+        Map<String, List<String>> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length)
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            options.computeIfAbsent(args[i].substring(2), k -> new ArrayList<>()).add(args[++i]);
+        }
+        return options;
+    }
+
+    private static String option(Map<String, List<String>> options, String name, String defaultValue) {
+        List<String> values = options.get(name);
+        return values == null ? defaultValue : values.get(values.size() - 1);
+    }
+}
@@ -4,30 +4,106 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import httpserver.config.Configuration;
 import httpserver.config.ConfigurationManager;
-import httpserver.core.ServerListenerThread;
+import httpserver.config.ServerEngine;
+import httpserver.core.Acceptors;
+import httpserver.core.BufferPool;
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpResponse;
+import httpserver.handler.CompressedFileStore;
+import httpserver.handler.Compression;
+import httpserver.handler.CompressionHandler;
+import httpserver.handler.Router;
+import httpserver.handler.StaticAssetCache;
+import httpserver.handler.StaticFileHandler;
+import httpserver.log.AccessLog;
+import httpserver.http.enums.HttpMethod;
+import httpserver.metrics.MetricsHandler;
+import httpserver.metrics.ServerMetrics;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.function.BiConsumer;
 
 public class SimpleHttpServer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleHttpServer.class);
 
+    private static final String HTML = "<html>\n" +
+            "    <head>\n" +
+            "        <body>Simple Http Server</body>\n" +
+            "    </head>\n" +
+            "</html>";
+
+    private static final BiConsumer<HttpRequest, HttpResponse> DEFAULT_HANDLER = (request, response) -> {
+        response.getHeaders().put("Content-Type", "text/html; charset=UTF-8");
+        response.setMessage(HTML);
+    };
+
     public static void main(String[] args) {
         LOGGER.info("Server Starting");
         ConfigurationManager.getInstance().loadConfigurationFile("src/main/resources/http.conf");
         Configuration conf = ConfigurationManager.getInstance().getCurrentConfiguration();
+        try {
+            start(conf);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
+    /* Builds the handler chain and engine for the configuration and starts its acceptor threads. */
+    public static List<Thread> start(Configuration conf) throws IOException {
         LOGGER.info("Using port: " + conf.getPort());
         LOGGER.info("Using webroot: " + conf.getWebroot());
+        LOGGER.info("Using engine: " + conf.getEngine());
+        BufferPool.setLeakDetection(conf.isBufferLeakDetection());
 
-        ServerListenerThread serverListenerThread = null;
-        try {
-            serverListenerThread = new ServerListenerThread(conf.getPort(),conf.getWebroot());
-            serverListenerThread.start();
-        } catch (IOException e) {
-            e.printStackTrace();
+        Compression compression = null;
+        if (conf.isCompressionEnabled()) {
+            LOGGER.info("Using compression for " + String.join(", ", conf.getCompressionMimeTypes())
+                    + " from " + conf.getCompressionMinSize() + " bytes");
+            compression = new Compression(conf.getCompressionMinSize(), conf.getCompressionMimeTypes());
         }
 
+        Router router = new Router();
+        if (conf.getWebroot() != null && !conf.getWebroot().isEmpty()) {
+            StaticAssetCache cache = null;
+            if (conf.getStaticCacheSize() > 0) {
+                LOGGER.info("Using static cache: " + conf.getStaticCacheSize() + " bytes, files up to "
+                        + conf.getStaticCacheMaxFileSize() + " bytes" + (conf.isStaticCacheOffHeap() ? ", off-heap" : ""));
+                cache = new StaticAssetCache(conf.getStaticCacheSize(), conf.getStaticCacheMaxFileSize(), conf.isStaticCacheOffHeap(), compression);
+            }
+            CompressedFileStore compressedFiles = null;
+            if (compression != null) {
+                compressedFiles = new CompressedFileStore(conf.getCompressedFileDirectory());
+                LOGGER.info("Storing compressed files too large to cache in " + compressedFiles.getDirectory());
+            }
+            router.add(HttpMethod.GET, "/*path", new StaticFileHandler(conf.getWebroot(), cache, compression, compressedFiles));
+        } else {
+            router.add(HttpMethod.GET, "/", DEFAULT_HANDLER);
+        }
+        if (conf.isMetricsEnabled()) {
+            LOGGER.info("Serving metrics at " + conf.getMetricsPath());
+            router.add(HttpMethod.GET, conf.getMetricsPath(), new MetricsHandler(ServerMetrics.get()));
+        }
+
+        if (AccessLog.start(conf).isEnabled()) {
+            LOGGER.info("Writing access log to " + conf.getAccessLogPath() + ", fsync: " + conf.getAccessLogFsync());
+        }
 
+        BiConsumer<HttpRequest, HttpResponse> handler = router;
+        if (compression != null) {
+            handler = new CompressionHandler(handler, compression);
+        }
+
+        if (conf.getEngine() != ServerEngine.NIO) {
+            LOGGER.info("Using execution mode: " + conf.getExecutionMode());
+            LOGGER.info("Using worker threads: " + conf.getWorkerThreads() + "-" + conf.getMaxWorkerThreads()
+                    + ", queue: " + conf.getWorkerQueueSize() + ", rejection policy: " + conf.getRejectionPolicy());
+        }
+        if (conf.getAcceptorThreads() > 1) {
+            LOGGER.info("Using acceptor threads: " + conf.getAcceptorThreads()
+                    + (conf.isAcceptorWorkerGroups() ? ", each with its own worker group" : ""));
+        }
+        return Acceptors.start(conf, handler);
     }
 }
@@ -4,6 +4,46 @@ public class Configuration {
 
     private int port;
     private String webroot;
+    private int workerThreads = 16;
+    private int maxWorkerThreads = 64;
+    private int workerQueueSize = 1024;
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private ServerEngine engine = ServerEngine.BLOCKING;
+    private int eventLoopThreads = 0;
+    private int acceptorThreads = 1;
+    private boolean acceptorWorkerGroups = false;
+    private int maxKeepAliveRequests = 100;
+    private int keepAliveTimeout = 5000;
+    private int headerReadTimeout = 10000;
+    private int bodyReadTimeout = 30000;
+    private int writeTimeout = 30000;
+    private int maxRequestBodySize = 1024 * 1024;
+    private int nioMaxRequestBodySize = 64 * 1024;
+    private long staticCacheSize = 64 * 1024 * 1024;
+    private long staticCacheMaxFileSize = 1024 * 1024;
+    private boolean staticCacheOffHeap = false;
+    private boolean compressionEnabled = true;
+    private int compressionMinSize = 1024;
+    private String[] compressionMimeTypes = {"text/html", "text/css", "text/plain", "text/csv", "text/xml",
+            "application/javascript", "application/json", "application/xml", "image/svg+xml"};
+    private String compressedFileDirectory = "";
+    private boolean bufferPoolEnabled = true;
+    private boolean bufferLeakDetection = false;
+    private boolean metricsEnabled = true;
+    private String metricsPath = "/metrics";
+    private String accessLogPath;
+    private int accessLogBufferSize = 8192;
+    private FsyncPolicy accessLogFsync = FsyncPolicy.INTERVAL;
+    private int accessLogFsyncInterval = 1000;
+    private long accessLogMaxFileSize = 64 * 1024 * 1024;
+    private int accessLogMaxFiles = 5;
+    private int maxConnections = 10000;
+    private int acceptBacklog = 1024;
+    private OverloadPolicy overloadPolicy = OverloadPolicy.SERVICE_UNAVAILABLE;
+    private int overloadRetryAfter = 1;
+    private int queueDelayTarget = 100;
+    private int queueDelayInterval = 500;
 
     public Configuration(int port, String webroot) {
         this.port = port;
@@ -28,4 +68,316 @@ public class Configuration {
     public void setWebroot(String webroot) {
         this.webroot = webroot;
     }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getMaxWorkerThreads() {
+        return maxWorkerThreads;
+    }
+
+    public void setMaxWorkerThreads(int maxWorkerThreads) {
+        this.maxWorkerThreads = maxWorkerThreads;
+    }
+
+    public int getWorkerQueueSize() {
+        return workerQueueSize;
+    }
+
+    public void setWorkerQueueSize(int workerQueueSize) {
+        this.workerQueueSize = workerQueueSize;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public ServerEngine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(ServerEngine engine) {
+        this.engine = engine;
+    }
+
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    public void setEventLoopThreads(int eventLoopThreads) {
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
+    public int getMaxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+
+    public void setMaxKeepAliveRequests(int maxKeepAliveRequests) {
+        this.maxKeepAliveRequests = maxKeepAliveRequests;
+    }
+
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public int getMaxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
+    public void setMaxRequestBodySize(int maxRequestBodySize) {
+        this.maxRequestBodySize = maxRequestBodySize;
+    }
+
+    public int getNioMaxRequestBodySize() {
+        return nioMaxRequestBodySize;
+    }
+
+    public void setNioMaxRequestBodySize(int nioMaxRequestBodySize) {
+        this.nioMaxRequestBodySize = nioMaxRequestBodySize;
+    }
+
+    public long getStaticCacheSize() {
+        return staticCacheSize;
+    }
+
+    public void setStaticCacheSize(long staticCacheSize) {
+        this.staticCacheSize = staticCacheSize;
+    }
+
+    public long getStaticCacheMaxFileSize() {
+        return staticCacheMaxFileSize;
+    }
+
+    public void setStaticCacheMaxFileSize(long staticCacheMaxFileSize) {
+        this.staticCacheMaxFileSize = staticCacheMaxFileSize;
+    }
+
+    public boolean isStaticCacheOffHeap() {
+        return staticCacheOffHeap;
+    }
+
+    public void setStaticCacheOffHeap(boolean staticCacheOffHeap) {
+        this.staticCacheOffHeap = staticCacheOffHeap;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    public void setCompressionMinSize(int compressionMinSize) {
+        this.compressionMinSize = compressionMinSize;
+    }
+
+    public String[] getCompressionMimeTypes() {
+        return compressionMimeTypes;
+    }
+
+    public void setCompressionMimeTypes(String[] compressionMimeTypes) {
+        this.compressionMimeTypes = compressionMimeTypes;
+    }
+
+    public String getCompressedFileDirectory() {
+        return compressedFileDirectory;
+    }
+
+    public void setCompressedFileDirectory(String compressedFileDirectory) {
+        this.compressedFileDirectory = compressedFileDirectory;
+    }
+
+    public boolean isBufferPoolEnabled() {
+        return bufferPoolEnabled;
+    }
+
+    public void setBufferPoolEnabled(boolean bufferPoolEnabled) {
+        this.bufferPoolEnabled = bufferPoolEnabled;
+    }
+
+    public boolean isBufferLeakDetection() {
+        return bufferLeakDetection;
+    }
+
+    public void setBufferLeakDetection(boolean bufferLeakDetection) {
+        this.bufferLeakDetection = bufferLeakDetection;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public String getMetricsPath() {
+        return metricsPath;
+    }
+
+    public void setMetricsPath(String metricsPath) {
+        this.metricsPath = metricsPath;
+    }
+
+    public String getAccessLogPath() {
+        return accessLogPath;
+    }
+
+    public void setAccessLogPath(String accessLogPath) {
+        this.accessLogPath = accessLogPath;
+    }
+
+    public int getAccessLogBufferSize() {
+        return accessLogBufferSize;
+    }
+
+    public void setAccessLogBufferSize(int accessLogBufferSize) {
+        this.accessLogBufferSize = accessLogBufferSize;
+    }
+
+    public FsyncPolicy getAccessLogFsync() {
+        return accessLogFsync;
+    }
+
+    public void setAccessLogFsync(FsyncPolicy accessLogFsync) {
+        this.accessLogFsync = accessLogFsync;
+    }
+
+    public int getAccessLogFsyncInterval() {
+        return accessLogFsyncInterval;
+    }
+
+    public void setAccessLogFsyncInterval(int accessLogFsyncInterval) {
+        this.accessLogFsyncInterval = accessLogFsyncInterval;
+    }
+
+    public long getAccessLogMaxFileSize() {
+        return accessLogMaxFileSize;
+    }
+
+    public void setAccessLogMaxFileSize(long accessLogMaxFileSize) {
+        this.accessLogMaxFileSize = accessLogMaxFileSize;
+    }
+
+    public int getAccessLogMaxFiles() {
+        return accessLogMaxFiles;
+    }
+
+    public void setAccessLogMaxFiles(int accessLogMaxFiles) {
+        this.accessLogMaxFiles = accessLogMaxFiles;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getAcceptBacklog() {
+        return acceptBacklog;
+    }
+
+    public void setAcceptBacklog(int acceptBacklog) {
+        this.acceptBacklog = acceptBacklog;
+    }
+
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    public void setOverloadPolicy(OverloadPolicy overloadPolicy) {
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    public int getOverloadRetryAfter() {
+        return overloadRetryAfter;
+    }
+
+    public void setOverloadRetryAfter(int overloadRetryAfter) {
+        this.overloadRetryAfter = overloadRetryAfter;
+    }
+
+    public int getQueueDelayTarget() {
+        return queueDelayTarget;
+    }
+
+    public void setQueueDelayTarget(int queueDelayTarget) {
+        this.queueDelayTarget = queueDelayTarget;
+    }
+
+    public int getQueueDelayInterval() {
+        return queueDelayInterval;
+    }
+
+    public void setQueueDelayInterval(int queueDelayInterval) {
+        this.queueDelayInterval = queueDelayInterval;
+    }
+
+    public int getHeaderReadTimeout() {
+        return headerReadTimeout;
+    }
+
+    public void setHeaderReadTimeout(int headerReadTimeout) {
+        this.headerReadTimeout = headerReadTimeout;
+    }
+
+    public int getBodyReadTimeout() {
+        return bodyReadTimeout;
+    }
+
+    public void setBodyReadTimeout(int bodyReadTimeout) {
+        this.bodyReadTimeout = bodyReadTimeout;
+    }
+
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(int writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public int getAcceptorThreads() {
+        return acceptorThreads;
+    }
+
+    public void setAcceptorThreads(int acceptorThreads) {
+        this.acceptorThreads = acceptorThreads;
+    }
+
+    public boolean isAcceptorWorkerGroups() {
+        return acceptorWorkerGroups;
+    }
+
+    public void setAcceptorWorkerGroups(boolean acceptorWorkerGroups) {
+        this.acceptorWorkerGroups = acceptorWorkerGroups;
+    }
 }
@@ -0,0 +1,6 @@
+package httpserver.config;
+
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL
+}
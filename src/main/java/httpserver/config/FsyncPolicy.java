@@ -0,0 +1,7 @@
+package httpserver.config;
+
+public enum FsyncPolicy {
+    NEVER,
+    INTERVAL,
+    BATCH
+}
@@ -0,0 +1,6 @@
+package httpserver.config;
+
+public enum OverloadPolicy {
+    SERVICE_UNAVAILABLE,
+    REFUSE
+}
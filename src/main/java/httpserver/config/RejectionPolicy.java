@@ -0,0 +1,7 @@
+package httpserver.config;
+
+public enum RejectionPolicy {
+    ABORT,
+    CALLER_RUNS,
+    DISCARD
+}
@@ -0,0 +1,6 @@
+package httpserver.config;
+
+public enum ServerEngine {
+    BLOCKING,
+    NIO
+}
@@ -0,0 +1,110 @@
+package httpserver.core;
+
+import httpserver.config.Configuration;
+import httpserver.config.ServerEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/*
+ * Starts the server's acceptor threads. With acceptorThreads above one, each acceptor gets its own
+ * listening socket bound to the same port with SO_REUSEPORT, so the kernel spreads new connections
+ * across them instead of every accept() going through one socket. The acceptors share one worker
+ * pool or set of event loops, or with acceptorWorkerGroups each gets its own slice of them. The
+ * connection cap is always server-wide.
+ */
+public final class Acceptors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Acceptors.class);
+
+    private Acceptors() {
+    }
+
+    public static List<Thread> start(Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process) throws IOException {
+        ServerSocketChannel[] sockets = bind(configuration);
+        AdmissionControl admission = new AdmissionControl(configuration);
+        boolean separateGroups = configuration.isAcceptorWorkerGroups() && sockets.length > 1;
+        int groups = separateGroups ? sockets.length : 1;
+        List<Thread> acceptors = new ArrayList<>(sockets.length);
+        if (configuration.getEngine() == ServerEngine.NIO) {
+            int threads = configuration.getEventLoopThreads() > 0
+                    ? configuration.getEventLoopThreads()
+                    : Runtime.getRuntime().availableProcessors();
+            NioEventLoopThread[] shared = separateGroups ? null : eventLoops(configuration, process, admission, threads, "http-event-loop-");
+            if (shared != null) {
+                for (NioEventLoopThread eventLoop : shared)
+                    eventLoop.start();
+            }
+            for (int i = 0; i < sockets.length; i++) {
+                NioEventLoopThread[] eventLoops = separateGroups
+                        ? eventLoops(configuration, process, admission, Math.max(1, threads / groups), "http-event-loop-" + (i + 1) + "-")
+                        : shared;
+                acceptors.add(new NioServerListenerThread(name(i, sockets.length), sockets[i], eventLoops, separateGroups, admission));
+            }
+        } else {
+            ConnectionDispatcher shared = separateGroups ? null
+                    : new ConnectionDispatcher(configuration, process, admission, "http-worker-", 1);
+            for (int i = 0; i < sockets.length; i++) {
+                ConnectionDispatcher dispatcher = separateGroups
+                        ? new ConnectionDispatcher(configuration, process, admission, "http-worker-" + (i + 1) + "-", groups)
+                        : shared;
+                acceptors.add(new ServerListenerThread(name(i, sockets.length), sockets[i], dispatcher, separateGroups));
+            }
+        }
+        for (Thread acceptor : acceptors)
+            acceptor.start();
+        return acceptors;
+    }
+
+    /* One socket per acceptor when SO_REUSEPORT is available, otherwise a single socket. */
+    private static ServerSocketChannel[] bind(Configuration configuration) throws IOException {
+        int count = Math.max(1, configuration.getAcceptorThreads());
+        ServerSocketChannel first = ServerSocketChannel.open();
+        if (count > 1 && !ReusePort.isSupported(first)) {
+            LOGGER.warn("SO_REUSEPORT needs Java 9 or newer on a platform that supports it (running Java {}), accepting on a single socket",
+                    System.getProperty("java.specification.version"));
+            count = 1;
+        }
+        ServerSocketChannel[] sockets = new ServerSocketChannel[count];
+        sockets[0] = first;
+        try {
+            InetSocketAddress address = new InetSocketAddress(configuration.getPort());
+            for (int i = 0; i < count; i++) {
+                if (sockets[i] == null)
+                    sockets[i] = ServerSocketChannel.open();
+                if (count > 1)
+                    ReusePort.enable(sockets[i]);
+                sockets[i].bind(address, configuration.getAcceptBacklog());
+                // the rest must join the port the first one got, even when an ephemeral port was asked for
+                address = new InetSocketAddress(sockets[0].socket().getLocalPort());
+            }
+        } catch (IOException e) {
+            for (ServerSocketChannel socket : sockets) {
+                if (socket != null)
+                    socket.close();
+            }
+            throw e;
+        }
+        if (count > 1)
+            LOGGER.info("Accepting on {} SO_REUSEPORT sockets", count);
+        return sockets;
+    }
+
+    private static NioEventLoopThread[] eventLoops(Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process,
+                                                   AdmissionControl admission, int threads, String prefix) throws IOException {
+        NioEventLoopThread[] eventLoops = new NioEventLoopThread[threads];
+        for (int i = 0; i < threads; i++)
+            eventLoops[i] = new NioEventLoopThread(prefix + (i + 1), configuration, process, admission);
+        return eventLoops;
+    }
+
+    private static String name(int index, int count) {
+        return count == 1 ? "http-acceptor" : "http-acceptor-" + (index + 1);
+    }
+}
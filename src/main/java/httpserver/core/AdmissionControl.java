@@ -0,0 +1,124 @@
+package httpserver.core;
+
+import httpserver.config.Configuration;
+import httpserver.config.OverloadPolicy;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static httpserver.http.enums.HttpStatusCode.SERVICE_UNAVAILABLE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/*
+ * Decides which accepted connections the server takes on. At most maxConnections are open at once;
+ * past that, and for connections shed from the worker queue, the overload policy either sends a
+ * pre-encoded 503 with Retry-After or just closes the connection. Neither ever blocks.
+ *
+ * Queue shedding follows CoDel: a connection that waited in the queue longer than the target is shed
+ * only once waits have stayed above the target for a whole interval. A burst queues up and drains,
+ * while a standing queue has its stale connections dropped, so fresh ones are served in time.
+ */
+class AdmissionControl {
+
+    private static final AdmissionControl UNLIMITED = new AdmissionControl(0, OverloadPolicy.REFUSE, 0, 0, 0);
+
+    private final int maxConnections;
+    private final OverloadPolicy policy;
+    private final ByteBuffer overloadResponse;
+    private final long queueDelayTargetNanos;
+    private final long queueDelayIntervalNanos;
+    private final AtomicInteger open = new AtomicInteger();
+    /* the time from which waits above the target are shed, or 0 while waits are below it */
+    private final AtomicLong sheddingFrom = new AtomicLong();
+
+    AdmissionControl(Configuration configuration) {
+        this(configuration.getMaxConnections(), configuration.getOverloadPolicy(), configuration.getOverloadRetryAfter(),
+                configuration.getQueueDelayTarget(), configuration.getQueueDelayInterval());
+    }
+
+    AdmissionControl(int maxConnections, OverloadPolicy policy, int retryAfterSeconds,
+                     long queueDelayTargetMillis, long queueDelayIntervalMillis) {
+        this.maxConnections = maxConnections;
+        this.policy = policy;
+        this.overloadResponse = ByteBuffer.wrap(("HTTP/1.1 " + SERVICE_UNAVAILABLE.STATUS_CODE + " " + SERVICE_UNAVAILABLE.MESSAGE + "\r\n"
+                + "Retry-After: " + Math.max(0, retryAfterSeconds) + "\r\n"
+                + "Content-Length: 0\r\n"
+                + "Connection: close\r\n\r\n").getBytes(US_ASCII)).asReadOnlyBuffer();
+        this.queueDelayTargetNanos = TimeUnit.MILLISECONDS.toNanos(queueDelayTargetMillis);
+        this.queueDelayIntervalNanos = TimeUnit.MILLISECONDS.toNanos(queueDelayIntervalMillis);
+    }
+
+    /* Admits everything and sheds nothing. */
+    static AdmissionControl unlimited() {
+        return UNLIMITED;
+    }
+
+    /* Reserves a connection slot, or returns false when maxConnections are already open. */
+    boolean tryAdmit() {
+        if (maxConnections <= 0) {
+            open.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = open.get();
+            if (current >= maxConnections)
+                return false;
+            if (open.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /* Frees the slot of an admitted connection once it is closed. */
+    void release() {
+        open.decrementAndGet();
+    }
+
+    int getOpen() {
+        return open.get();
+    }
+
+    /* True when a connection that waited queuedNanos for a worker should be shed instead of served. */
+    boolean shouldShed(long queuedNanos) {
+        return shouldShed(queuedNanos, System.nanoTime());
+    }
+
+    boolean shouldShed(long queuedNanos, long now) {
+        if (queueDelayTargetNanos <= 0)
+            return false;
+        if (queuedNanos < queueDelayTargetNanos) {
+            if (sheddingFrom.get() != 0)
+                sheddingFrom.set(0);
+            return false;
+        }
+        long from = sheddingFrom.get();
+        if (from == 0) {
+            // 0 marks waits below the target, so a deadline that lands on it is nudged by a nanosecond
+            long deadline = now + queueDelayIntervalNanos;
+            sheddingFrom.compareAndSet(0, deadline == 0 ? 1 : deadline);
+            return false;
+        }
+        return now - from >= 0;
+    }
+
+    /* Answers an overloaded connection according to the policy and closes it without blocking. */
+    void reject(Socket socket) {
+        SocketChannel channel = socket.getChannel();
+        try {
+            if (policy == OverloadPolicy.SERVICE_UNAVAILABLE && channel != null) {
+                channel.configureBlocking(false);
+                channel.write(overloadResponse.duplicate());
+            }
+        } catch (IOException ignored) {
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
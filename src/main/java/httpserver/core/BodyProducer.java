@@ -0,0 +1,19 @@
+package httpserver.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * Produces a streamed response body a piece at a time. The server asks for the next piece only once
+ * the connection has taken the previous ones, so a slow client holds the producer back instead of
+ * the body piling up in memory, and the NIO event loop never waits for it.
+ */
+public interface BodyProducer {
+
+    /* Writes the next piece of the body to out, the same stream on every call; false once the body is complete. */
+    boolean produce(OutputStream out) throws IOException;
+
+    /* Releases whatever the producer holds; called once, whether or not the body was completed. */
+    default void close() {
+    }
+}
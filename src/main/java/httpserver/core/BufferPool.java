@@ -0,0 +1,264 @@
+package httpserver.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Pool of connection read and write buffers. Capacities are rounded up to power-of-two size classes
+ * from 1 KB up to the pool's maximum; larger buffers are allocated and dropped as before. Free
+ * buffers are kept in stripes picked by thread id, so threads rarely contend, and each stripe holds
+ * at most STRIPE_CLASS_BYTES per size class. A buffer must be released exactly once, by whoever
+ * acquired it, and not used afterwards.
+ *
+ * With leak detection on, every acquired buffer is tracked with the stack that acquired it. Buffers
+ * collected without being released are reported, as are releases of buffers that are not outstanding.
+ */
+public class BufferPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferPool.class);
+
+    private static final int MIN_CLASS_SHIFT = 10;
+    private static final int MAX_POOLED_SIZE = 64 * 1024;
+    private static final int STRIPE_CLASS_BYTES = 256 * 1024;
+    private static final int MAX_STRIPE_CLASS_DEPTH = 64;
+
+    private static final BufferPool HEAP = new BufferPool(false, MAX_POOLED_SIZE);
+    private static final BufferPool DIRECT = new BufferPool(true, MAX_POOLED_SIZE);
+    private static final BufferPool UNPOOLED_HEAP = new BufferPool(false, 0);
+    private static final BufferPool UNPOOLED_DIRECT = new BufferPool(true, 0);
+
+    private final boolean direct;
+    private final int classCount;
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    private volatile boolean leakDetection;
+    private final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<>();
+    private final Map<Integer, Tracker> trackers = new HashMap<>();
+
+    BufferPool(boolean direct, int maxPooledSize) {
+        this.direct = direct;
+        int classes = 0;
+        while (maxPooledSize >= 1 << (MIN_CLASS_SHIFT + classes))
+            classes++;
+        this.classCount = classes;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+        this.stripes = new Stripe[classes == 0 ? 0 : stripeCount];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe(classes);
+    }
+
+    /* Shared pool of heap buffers, for buffers parsed through their backing array. */
+    public static BufferPool heap() {
+        return HEAP;
+    }
+
+    /* Shared pool of direct buffers, for buffers only written to channels. */
+    public static BufferPool direct() {
+        return DIRECT;
+    }
+
+    /* A pool that allocates every buffer, for when pooling is turned off. */
+    public static BufferPool unpooled(boolean direct) {
+        return direct ? UNPOOLED_DIRECT : UNPOOLED_HEAP;
+    }
+
+    public static void setLeakDetection(boolean enabled) {
+        HEAP.trackLeaks(enabled);
+        DIRECT.trackLeaks(enabled);
+    }
+
+    void trackLeaks(boolean enabled) {
+        leakDetection = enabled;
+    }
+
+    /* A cleared buffer of at least the given capacity. */
+    ByteBuffer acquire(int capacity) {
+        int sizeClass = sizeClass(capacity);
+        ByteBuffer buffer = null;
+        if (sizeClass >= 0)
+            buffer = stripe().poll(sizeClass);
+        if (buffer != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            int size = sizeClass >= 0 ? 1 << (MIN_CLASS_SHIFT + sizeClass) : capacity;
+            buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+        outstanding.incrementAndGet();
+        if (leakDetection) {
+            reportLeaks();
+            track(buffer);
+        }
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer == null)
+            return;
+        if (leakDetection && !untrack(buffer))
+            return;
+        outstanding.decrementAndGet();
+        int sizeClass = sizeClass(buffer.capacity());
+        if (sizeClass < 0 || buffer.isDirect() != direct || buffer.capacity() != 1 << (MIN_CLASS_SHIFT + sizeClass))
+            return;
+        buffer.clear();
+        stripe().offer(sizeClass, buffer);
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    boolean isUnpooled() {
+        return classCount == 0;
+    }
+
+    /* Acquisitions served from the pool. */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /* Acquisitions that had to allocate. */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /* Buffers acquired and not yet released. */
+    public long getOutstanding() {
+        return outstanding.get();
+    }
+
+    /* Buffers found collected without having been released; only counted with leak detection on. */
+    public long getLeaks() {
+        return leaks.get();
+    }
+
+    /* Free buffers currently held by the pool. */
+    public int getPooled() {
+        int pooled = 0;
+        for (Stripe stripe : stripes)
+            pooled += stripe.size();
+        return pooled;
+    }
+
+    private int sizeClass(int capacity) {
+        if (classCount == 0 || capacity > 1 << (MIN_CLASS_SHIFT + classCount - 1))
+            return -1;
+        int sizeClass = 0;
+        while (capacity > 1 << (MIN_CLASS_SHIFT + sizeClass))
+            sizeClass++;
+        return sizeClass;
+    }
+
+    private Stripe stripe() {
+        return stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+    }
+
+    private void track(ByteBuffer buffer) {
+        int key = System.identityHashCode(buffer);
+        synchronized (trackers) {
+            Tracker tracker = new Tracker(buffer, collected, key);
+            tracker.next = trackers.put(key, tracker);
+        }
+    }
+
+    private boolean untrack(ByteBuffer buffer) {
+        int key = System.identityHashCode(buffer);
+        synchronized (trackers) {
+            Tracker previous = null;
+            for (Tracker tracker = trackers.get(key); tracker != null; previous = tracker, tracker = tracker.next) {
+                if (tracker.get() != buffer)
+                    continue;
+                unlink(key, previous, tracker);
+                tracker.clear();
+                return true;
+            }
+        }
+        LOGGER.error("Released a buffer that is not outstanding", new IllegalStateException("Buffer released here"));
+        return false;
+    }
+
+    private void reportLeaks() {
+        Tracker leaked;
+        while ((leaked = (Tracker) collected.poll()) != null) {
+            synchronized (trackers) {
+                Tracker previous = null;
+                for (Tracker tracker = trackers.get(leaked.key); tracker != null; previous = tracker, tracker = tracker.next) {
+                    if (tracker == leaked) {
+                        unlink(leaked.key, previous, tracker);
+                        break;
+                    }
+                }
+            }
+            leaks.incrementAndGet();
+            outstanding.decrementAndGet();
+            LOGGER.error("Buffer was garbage collected without being released", leaked.acquiredAt);
+        }
+    }
+
+    private void unlink(int key, Tracker previous, Tracker tracker) {
+        if (previous != null)
+            previous.next = tracker.next;
+        else if (tracker.next != null)
+            trackers.put(key, tracker.next);
+        else
+            trackers.remove(key);
+    }
+
+    private static final class Tracker extends WeakReference<ByteBuffer> {
+
+        private final int key;
+        private final Throwable acquiredAt = new Throwable("Buffer acquired here");
+        private Tracker next;
+
+        Tracker(ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue, int key) {
+            super(buffer, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ByteBuffer[][] free;
+        private final int[] counts;
+
+        Stripe(int classes) {
+            free = new ByteBuffer[classes][];
+            counts = new int[classes];
+            for (int i = 0; i < classes; i++)
+                free[i] = new ByteBuffer[Math.min(MAX_STRIPE_CLASS_DEPTH, STRIPE_CLASS_BYTES >> (MIN_CLASS_SHIFT + i))];
+        }
+
+        synchronized ByteBuffer poll(int sizeClass) {
+            if (counts[sizeClass] == 0)
+                return null;
+            ByteBuffer buffer = free[sizeClass][--counts[sizeClass]];
+            free[sizeClass][counts[sizeClass]] = null;
+            return buffer;
+        }
+
+        synchronized void offer(int sizeClass, ByteBuffer buffer) {
+            if (counts[sizeClass] < free[sizeClass].length)
+                free[sizeClass][counts[sizeClass]++] = buffer;
+        }
+
+        synchronized int size() {
+            int size = 0;
+            for (int count : counts)
+                size += count;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package httpserver.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static httpserver.http.enums.HttpStatusCode.HEADER_TOO_LARGE;
+import static httpserver.http.enums.HttpStatusCode.PAYLOAD_TOO_LARGE;
+
+/*
+ * Request body sent with Transfer-Encoding: chunked. Chunk extensions and trailer fields are read
+ * and discarded; the decoded size is limited to maxBodySize and the trailer section to the size of a
+ * request head.
+ */
+class ChunkedInputStream extends InputStream {
+
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int MAX_TRAILER_SIZE = HttpRequestDecoder.MAX_HEAD_SIZE;
+
+    private final InputStream in;
+    private final long maxBodySize;
+    private final HttpRequest request;
+    private long chunkRemaining;
+    private long total;
+    private boolean finished;
+
+    ChunkedInputStream(InputStream in, long maxBodySize, HttpRequest request) {
+        this.in = in;
+        this.maxBodySize = maxBodySize;
+        this.request = request;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk())
+            return -1;
+        int b = in.read();
+        if (b < 0)
+            throw new EOFException("Connection closed inside a request body chunk");
+        chunkRemaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!nextChunk())
+            return -1;
+        int read = in.read(b, off, (int) Math.min(len, chunkRemaining));
+        if (read < 0)
+            throw new EOFException("Connection closed inside a request body chunk");
+        chunkRemaining -= read;
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return finished ? 0 : (int) Math.min(in.available(), chunkRemaining);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (finished)
+            return false;
+        if (chunkRemaining > 0)
+            return true;
+        if (total > 0 && !readLine().isEmpty())
+            throw new IOException("Missing CRLF after request body chunk");
+        String line = readLine();
+        int extension = line.indexOf(';');
+        String size = (extension < 0 ? line : line.substring(0, extension)).trim();
+        try {
+            if (size.isEmpty() || size.length() > 15)
+                throw new NumberFormatException(size);
+            chunkRemaining = Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + line);
+        }
+        if (chunkRemaining < 0)
+            throw new IOException("Invalid chunk size: " + line);
+        if (chunkRemaining == 0) {
+            readTrailer();
+            finished = true;
+            return false;
+        }
+        total += chunkRemaining;
+        if (total > maxBodySize) {
+            request.setBodyError(PAYLOAD_TOO_LARGE);
+            throw new IOException("Request body exceeds " + maxBodySize + " bytes");
+        }
+        return true;
+    }
+
+    /* Trailer fields are not exposed, but each one still counts towards the limit. */
+    private void readTrailer() throws IOException {
+        long trailerSize = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            trailerSize += line.length() + 2;
+            if (trailerSize > MAX_TRAILER_SIZE) {
+                request.setBodyError(HEADER_TOO_LARGE);
+                throw new IOException("Request trailer section exceeds " + MAX_TRAILER_SIZE + " bytes");
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0)
+                throw new EOFException("Connection closed inside the chunked request body");
+            if (line.length() == MAX_LINE_LENGTH)
+                throw new IOException("Chunk line too long");
+            line.append((char) b);
+        }
+        int length = line.length();
+        if (length == 0 || line.charAt(length - 1) != '\r')
+            throw new IOException("Chunk line not terminated by CRLF");
+        line.setLength(length - 1);
+        return line.toString();
+    }
+}
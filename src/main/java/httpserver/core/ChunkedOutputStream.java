@@ -0,0 +1,133 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpVersion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/*
+ * Body stream of a response. Output is buffered until the first flush or until the buffer fills, at
+ * which point the head is sent with Transfer-Encoding: chunked unless the handler set Content-Length.
+ * HTTP/1.0 clients get the body delimited by closing the connection instead. A body that fits in
+ * the buffer and is never flushed is sent with a Content-Length.
+ */
+class ChunkedOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(US_ASCII);
+
+    private final HttpResponse response;
+    private final ResponseSink sink;
+    private final boolean withBody;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private boolean keepAlive;
+    private int count;
+    private boolean committed;
+    private boolean chunked;
+    private boolean closed;
+
+    ChunkedOutputStream(HttpResponse response, ResponseSink sink, boolean keepAlive, boolean withBody) {
+        this.response = response;
+        this.sink = sink;
+        this.keepAlive = keepAlive;
+        this.withBody = withBody;
+    }
+
+    boolean isCommitted() {
+        return committed;
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /* Asks the producer for its next piece; a HEAD response only sends its head. False once the body is complete. */
+    boolean produce(BodyProducer producer) throws IOException {
+        if (!withBody) {
+            flush();
+            return false;
+        }
+        return producer.produce(this);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length)
+            writeBuffer();
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len >= buffer.length) {
+            writeBuffer();
+            writeChunk(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        if (len > buffer.length - count)
+            writeBuffer();
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBuffer();
+        sink.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (!committed && !response.getHeaders().containsKey("Content-Length"))
+            response.getHeaders().put("Content-Length", String.valueOf(count));
+        writeBuffer();
+        if (chunked && withBody)
+            sink.write(ByteBuffer.wrap(LAST_CHUNK));
+    }
+
+    private void writeBuffer() throws IOException {
+        if (!committed)
+            commit();
+        if (count > 0)
+            writeChunk(ByteBuffer.wrap(buffer, 0, count));
+        count = 0;
+    }
+
+    private void writeChunk(ByteBuffer data) throws IOException {
+        if (!withBody || !data.hasRemaining())
+            return;
+        if (chunked)
+            sink.write(ByteBuffer.wrap((Integer.toHexString(data.remaining()) + "\r\n").getBytes(US_ASCII)), data, ByteBuffer.wrap(CRLF));
+        else
+            sink.write(data);
+    }
+
+    private void commit() throws IOException {
+        committed = true;
+        if (!response.getHeaders().containsKey("Content-Length")) {
+            if (response.getHttpVersion() == HttpVersion.HTTP_1_1) {
+                response.getHeaders().put("Transfer-Encoding", "chunked");
+                chunked = true;
+            } else {
+                keepAlive = false;
+            }
+        }
+        response.getHeaders().put("Connection", keepAlive ? "keep-alive" : "close");
+        sink.write(ResponseEncoder.encodeUnpooled(response));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Response stream is closed");
+    }
+}
@@ -0,0 +1,124 @@
+package httpserver.core;
+
+import httpserver.config.Configuration;
+import httpserver.config.ExecutionMode;
+import httpserver.config.RejectionPolicy;
+import httpserver.metrics.ServerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+public class ConnectionDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionDispatcher.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final ExecutorService executor;
+    private final Configuration configuration;
+    private final BiConsumer<HttpRequest, HttpResponse> process;
+    private final AdmissionControl admission;
+
+    public ConnectionDispatcher(Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process) {
+        this(configuration, process, new AdmissionControl(configuration), "http-worker-", 1);
+    }
+
+    /* One of groups dispatchers sharing the configured worker threads and queue, and one admission control. */
+    ConnectionDispatcher(Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process,
+                         AdmissionControl admission, String threadPrefix, int groups) {
+        this.configuration = configuration;
+        this.process = process;
+        this.admission = admission;
+        if (configuration.getExecutionMode() == ExecutionMode.VIRTUAL) {
+            if (VirtualThreads.isSupported()) {
+                LOGGER.info("Running connections on virtual threads");
+                this.executor = VirtualThreads.newThreadPerTaskExecutor(threadPrefix);
+                return;
+            }
+            LOGGER.warn("Virtual threads are not available on Java {}, falling back to the platform worker pool",
+                    System.getProperty("java.specification.version"));
+        }
+        this.executor = newWorkerPool(configuration, threadPrefix, groups);
+    }
+
+    private static ThreadPoolExecutor newWorkerPool(Configuration configuration, String threadPrefix, int groups) {
+        int coreThreads = Math.max(1, configuration.getWorkerThreads() / groups);
+        int maxThreads = Math.max(coreThreads, configuration.getMaxWorkerThreads() / groups);
+        int queueSize = Math.max(1, configuration.getWorkerQueueSize() / groups);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(coreThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new WorkerThreadFactory(threadPrefix),
+                rejectionHandler(configuration.getRejectionPolicy()));
+        pool.prestartAllCoreThreads();
+        return pool;
+    }
+
+    public void dispatch(Socket socket) {
+        if (!admission.tryAdmit()) {
+            ServerMetrics.get().connectionRejected();
+            admission.reject(socket);
+            return;
+        }
+        HttpConnectionWorkerThread worker = new HttpConnectionWorkerThread(socket, configuration, process, admission);
+        try {
+            executor.execute(worker);
+        } catch (RejectedExecutionException e) {
+            closeRejected(worker);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(RejectionPolicy policy) {
+        if (policy == RejectionPolicy.CALLER_RUNS) {
+            return (task, executor) -> {
+                if (executor.isShutdown()) {
+                    closeRejected(task);
+                } else {
+                    task.run();
+                }
+            };
+        }
+        if (policy == RejectionPolicy.DISCARD) {
+            return (task, executor) -> closeRejected(task);
+        }
+        return (task, executor) -> {
+            LOGGER.warn("Connection rejected, worker pool saturated (active: {}, queued: {})",
+                    executor.getActiveCount(), executor.getQueue().size());
+            closeRejected(task);
+        };
+    }
+
+    private static void closeRejected(Runnable task) {
+        ServerMetrics.get().connectionRejected();
+        if (task instanceof HttpConnectionWorkerThread) {
+            ((HttpConnectionWorkerThread) task).reject();
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        WorkerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, prefix + count.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package httpserver.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/* Request body framed by Content-Length: ends after exactly that many bytes of the connection stream. */
+class ContentLengthInputStream extends InputStream {
+
+    private final InputStream in;
+    private long remaining;
+
+    ContentLengthInputStream(InputStream in, long length) {
+        this.in = in;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining == 0)
+            return -1;
+        int b = in.read();
+        if (b < 0)
+            throw new EOFException("Connection closed with " + remaining + " bytes of the request body unread");
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (remaining == 0)
+            return -1;
+        int read = in.read(b, off, (int) Math.min(len, remaining));
+        if (read < 0)
+            throw new EOFException("Connection closed with " + remaining + " bytes of the request body unread");
+        remaining -= read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(Math.min(n, remaining));
+        remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    /*
+     * Does nothing, so a handler closing the body cannot close the connection. Whatever it left unread
+     * is skipped by the server before the next request.
+     */
+    @Override
+    public void close() {
+    }
+}
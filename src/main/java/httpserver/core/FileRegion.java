@@ -0,0 +1,61 @@
+package httpserver.core;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * A slice of a file sent with FileChannel.transferTo, which the JVM maps to sendfile when the target
+ * is a socket channel, so file bytes never pass through the Java heap. Several regions may share a
+ * channel, in which case only the last of them closes it.
+ */
+class FileRegion {
+
+    private final FileChannel fileChannel;
+    private final long count;
+    private long position;
+    private long remaining;
+    private boolean closesChannel = true;
+
+    FileRegion(FileChannel fileChannel, long position, long count) {
+        this.fileChannel = fileChannel;
+        this.position = position;
+        this.count = count;
+        this.remaining = count;
+    }
+
+    FileChannel getFileChannel() {
+        return fileChannel;
+    }
+
+    void setClosesChannel(boolean closesChannel) {
+        this.closesChannel = closesChannel;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    boolean hasRemaining() {
+        return remaining > 0;
+    }
+
+    long transferTo(WritableByteChannel target) throws IOException {
+        long transferred = fileChannel.transferTo(position, remaining, target);
+        if (transferred == 0 && position >= fileChannel.size()) {
+            throw new IOException("File truncated while it was being sent");
+        }
+        position += transferred;
+        remaining -= transferred;
+        return transferred;
+    }
+
+    void close() {
+        if (!closesChannel)
+            return;
+        try {
+            fileChannel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -1,27 +1,83 @@
 package httpserver.core;
 
+import httpserver.config.Configuration;
+import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpStatusCode;
 import httpserver.http.enums.HttpVersion;
-import httpserver.util.HttpParsingException;
+import httpserver.log.AccessLog;
+import httpserver.metrics.ServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
-public class HttpConnectionWorkerThread extends Thread {
+import static httpserver.http.enums.HttpStatusCode.INTERNAL_SERVER_ERROR;
+
+public class HttpConnectionWorkerThread implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpConnectionWorkerThread.class);
 
+    private static final int MAX_PIPELINED_RESPONSES = 16;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
 
     private final Socket socket;
     private final BiConsumer<HttpRequest, HttpResponse> process;
+    private final int maxKeepAliveRequests;
+    private final long keepAliveTimeoutNanos;
+    private final long headerReadTimeoutNanos;
+    private final long bodyReadTimeoutNanos;
+    private final long writeTimeoutNanos;
+    private final int maxRequestBodySize;
+    private final BufferPool readPool;
+    private final ResponseQueue pendingWrites = new ResponseQueue(MAX_PIPELINED_RESPONSES);
+    private final ResponseEncoder encoder;
+    private final ServerMetrics metrics = ServerMetrics.get();
+    private final AccessLog accessLog = AccessLog.get();
+    private final AdmissionControl admission;
+    private final long queuedAt = System.nanoTime();
+    private final TimerWheel timer = TimerWheel.shared();
+    private final TimerWheel.Timeout timeout = timer.newTimeout(this::expire);
+    private final Runnable rearmWriteTimeout = this::rearmWriteTimeout;
+    private volatile boolean timedOut;
+    private boolean readingBody;
+
+    public HttpConnectionWorkerThread(Socket socket, Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process) {
+        this(socket, configuration, process, AdmissionControl.unlimited());
+    }
 
-    public HttpConnectionWorkerThread(Socket socket, BiConsumer<HttpRequest, HttpResponse> process) {
+    HttpConnectionWorkerThread(Socket socket, Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process,
+                               AdmissionControl admission) {
         this.socket = socket;
+        this.admission = admission;
         this.process = process;
+        this.maxKeepAliveRequests = configuration.getMaxKeepAliveRequests();
+        this.keepAliveTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getKeepAliveTimeout());
+        this.headerReadTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getHeaderReadTimeout());
+        this.bodyReadTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getBodyReadTimeout());
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getWriteTimeout());
+        this.maxRequestBodySize = configuration.getMaxRequestBodySize();
+        this.readPool = configuration.isBufferPoolEnabled() ? BufferPool.heap() : BufferPool.unpooled(false);
+        this.encoder = new ResponseEncoder(configuration.isBufferPoolEnabled() ? BufferPool.direct() : BufferPool.unpooled(true));
+    }
+
+    Socket getSocket() {
+        return socket;
+    }
+
+    /* Turns the connection away under the overload policy instead of serving it. */
+    void reject() {
+        admission.reject(socket);
+        admission.release();
     }
 
     private void printRequest(InputStream inputStream) throws IOException {
@@ -33,39 +89,138 @@ public class HttpConnectionWorkerThread extends Thread {
     @Override
     public void run() {
         InputStream inputStream = null;
-        OutputStream outputStream = null;
+        HttpRequestDecoder decoder = null;
+        if (admission.shouldShed(System.nanoTime() - queuedAt)) {
+            metrics.connectionShed();
+            reject();
+            return;
+        }
+        SocketChannel channel = socket.getChannel();
+        metrics.connectionOpened();
         try {
-            inputStream = socket.getInputStream();
-            HttpResponse response;
-            HttpRequest request = null;
-            try {
-                request = HttpParser.parseHttpRequest(inputStream);
-                response = new HttpResponse(request.getHttpVersion());
-                process.accept(request, response);
-            } catch (HttpParsingException e) {
-                response = new HttpResponse(HttpVersion.HTTP_1_0, e.getErrorCode(), e.getErrorCode().MESSAGE);
+            inputStream = new TimedInputStream(socket.getInputStream());
+            decoder = new HttpRequestDecoder(maxRequestBodySize, readPool, inputStream);
+            ResponseSink sink = new ResponseSink() {
+                @Override
+                public void write(ByteBuffer... buffers) throws IOException {
+                    writePending(channel);
+                    long remaining = 0;
+                    for (ByteBuffer buffer : buffers)
+                        remaining += buffer.remaining();
+                    timer.schedule(timeout, writeTimeoutNanos);
+                    try {
+                        while (remaining > 0) {
+                            long written = channel.write(buffers);
+                            metrics.bytesSent(written);
+                            remaining -= written;
+                        }
+                    } finally {
+                        timer.cancel(timeout);
+                    }
+                }
+
+                @Override
+                public void flush() {
+                }
+            };
+            int served = 0;
+            boolean keepAlive = true;
+            while (keepAlive && awaitRequest(decoder)) {
+                served++;
+                HttpResponse response;
+                HttpRequest request = null;
+                long parseStart = System.nanoTime();
+                HttpRequestDecoder.Status status = readHead(decoder);
+                if (status == null) {
+                    writePending(channel);
+                    break;
+                }
+                timer.cancel(timeout);
+                if (status == HttpRequestDecoder.Status.ERROR) {
+                    metrics.parseError(decoder.getErrorCode());
+                    response = new HttpResponse(HttpVersion.HTTP_1_0, decoder.getErrorCode(), decoder.getErrorCode().MESSAGE);
+                    keepAlive = false;
+                } else {
+                    request = decoder.getRequest();
+                    metrics.getParseTime().record(System.nanoTime() - parseStart);
+                    if (decoder.takeContinueExpected()) {
+                        pendingWrites.add(ByteBuffer.wrap(CONTINUE), null, null);
+                        writePending(channel);
+                    }
+                    response = new HttpResponse(request.getHttpVersion());
+                    keepAlive = request.isKeepAlive() && served < maxKeepAliveRequests;
+                    response.prepareStream(sink, keepAlive, request.getMethod() != HttpMethod.HEAD);
+                    long handleStart = System.nanoTime();
+                    readingBody = true;
+                    try {
+                        process.accept(request, response);
+                    } catch (RuntimeException e) {
+                        if (response.isCommitted())
+                            throw e;
+                        LOGGER.error("Problem with processing request", e);
+                        if (response.getProducer() != null)
+                            response.getProducer().close();
+                        HttpStatusCode errorCode = request.getBodyError() != null ? request.getBodyError() : INTERNAL_SERVER_ERROR;
+                        response = new HttpResponse(request.getHttpVersion(), errorCode, errorCode.MESSAGE);
+                        keepAlive = false;
+                    }
+                    if (response.getProducer() != null) {
+                        // the sink blocks until the socket takes each piece, so this worker paces the producer
+                        try {
+                            ChunkedOutputStream out = response.openProducerStream();
+                            while (out.produce(response.getProducer())) {
+                            }
+                        } finally {
+                            response.getProducer().close();
+                        }
+                    }
+                    if (response.getStream() != null) {
+                        response.getStream().close();
+                        keepAlive = response.getStream().isKeepAlive();
+                    }
+                    metrics.getHandleTime().record(System.nanoTime() - handleStart);
+                    boolean drained = HttpParser.skipBody(request);
+                    readingBody = false;
+                    HttpStatusCode bodyError = request.getBodyError();
+                    if (!drained && bodyError != null && !response.isCommitted())
+                        response = new HttpResponse(request.getHttpVersion(), bodyError, bodyError.MESSAGE);
+                    keepAlive = keepAlive && drained;
+                    metrics.request(request.getMethod(), response.getStatusCode());
+                }
+                long bodyBytes = -1;
+                if (response.getStream() == null) {
+                    response.getHeaders().put("Connection", keepAlive ? "keep-alive" : "close");
+                    boolean withBody = (request == null || request.getMethod() != HttpMethod.HEAD) && response.isBodyAllowed();
+                    bodyBytes = withBody ? response.getBodyLength() : 0;
+                    queue(response, withBody);
+                }
+                accessLog.log(socket.getInetAddress(), request, response.getStatusCode(), bodyBytes, System.nanoTime() - parseStart);
+                decoder.next();
+                // pipelined requests already buffered are served first so their responses share one write
+                if (!keepAlive || pendingWrites.isFull() || !decoder.hasBufferedData())
+                    writePending(channel);
             }
-            outputStream = socket.getOutputStream();
-            outputStream.write(response.getResponseBytes());
-            LOGGER.info("Response Sent");
 
             inputStream.close();
-            outputStream.close();
         } catch (Exception e) {
-            LOGGER.error("Problem with communication", e);
+            if (timedOut)
+                LOGGER.debug("Connection timed out");
+            else
+                LOGGER.error("Problem with communication", e);
         } finally {
+            timer.cancel(timeout);
+            metrics.connectionClosed();
+            admission.release();
+            pendingWrites.clear();
+            encoder.reset();
+            if (decoder != null)
+                decoder.release();
             if (inputStream != null) {
                 try {
                     inputStream.close();
                 } catch (IOException ignored) {
                 }
             }
-            if (outputStream != null) {
-                try {
-                    outputStream.close();
-                } catch (IOException ignored) {
-                }
-            }
             if (socket != null) {
                 try {
                     socket.close();
@@ -74,4 +229,107 @@ public class HttpConnectionWorkerThread extends Thread {
             }
         }
     }
+
+    private void queue(HttpResponse response, boolean withBody) {
+        List<ByteBuffer> bodyBuffers = response.getBodyBuffers();
+        List<FileRegion> bodyRegions = response.getBodyRegions();
+        if (bodyRegions != null && !withBody) {
+            for (FileRegion region : bodyRegions) {
+                if (region != null)
+                    region.close();
+            }
+        }
+        pendingWrites.add(encoder.encode(response), withBody ? bodyBuffers : null, bodyRegions);
+    }
+
+    /* Heads, body buffers and file regions go to the socket channel in gathering writes without being copied. */
+    private void writePending(SocketChannel channel) throws IOException {
+        if (!pendingWrites.isEmpty()) {
+            long start = System.nanoTime();
+            timer.schedule(timeout, writeTimeoutNanos);
+            try {
+                pendingWrites.writeTo(channel, rearmWriteTimeout);
+            } finally {
+                timer.cancel(timeout);
+            }
+            metrics.getWriteTime().record(System.nanoTime() - start);
+        }
+        encoder.reset();
+    }
+
+    /*
+     * Waits out the keep-alive timeout for the first bytes of the next request, unless a pipelined one
+     * is already buffered, then gives the whole head until the header-read timeout, however slowly it
+     * trickles in.
+     */
+    private boolean awaitRequest(HttpRequestDecoder decoder) throws IOException {
+        if (!decoder.hasBufferedData()) {
+            timer.schedule(timeout, keepAliveTimeoutNanos);
+            if (decoder.readFromSource() < 0)
+                return false;
+        }
+        timer.schedule(timeout, headerReadTimeoutNanos);
+        return true;
+    }
+
+    /* Reads until a request head is decoded or refused; null if the client closed the connection first. */
+    private HttpRequestDecoder.Status readHead(HttpRequestDecoder decoder) throws IOException {
+        HttpRequestDecoder.Status status;
+        while ((status = decoder.decode()) == HttpRequestDecoder.Status.NEED_MORE_DATA) {
+            if (decoder.readFromSource() < 0)
+                return null;
+        }
+        return status;
+    }
+
+    private void rearmWriteTimeout() {
+        timer.schedule(timeout, writeTimeoutNanos);
+    }
+
+    /* Runs on the timer thread; closing the socket fails the worker's blocked read or write. */
+    private void expire() {
+        timedOut = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /* Counts bytes read, and while a body is being read gives each read until the body-read timeout. */
+    private class TimedInputStream extends FilterInputStream {
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (readingBody)
+                timer.schedule(timeout, bodyReadTimeoutNanos);
+            try {
+                int b = in.read();
+                if (b >= 0)
+                    metrics.bytesReceived(1);
+                return b;
+            } finally {
+                if (readingBody)
+                    timer.cancel(timeout);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (readingBody)
+                timer.schedule(timeout, bodyReadTimeoutNanos);
+            try {
+                int read = in.read(b, off, len);
+                if (read > 0)
+                    metrics.bytesReceived(read);
+                return read;
+            } finally {
+                if (readingBody)
+                    timer.cancel(timeout);
+            }
+        }
+    }
 }
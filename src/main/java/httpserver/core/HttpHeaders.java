@@ -0,0 +1,199 @@
+package httpserver.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/*
+ * Request header fields in arrival order, kept in two parallel arrays. Names are compared ignoring
+ * case without building lowercase copies, repeated fields are all kept, and well-known names are
+ * mapped to the shared constants below so parsing them allocates no name String. clear() empties the
+ * arrays without shrinking them, so a connection can reuse one instance for every request it reads.
+ */
+public class HttpHeaders {
+
+    public static final String ACCEPT = "Accept";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String ACCEPT_LANGUAGE = "Accept-Language";
+    public static final String AUTHORIZATION = "Authorization";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String CONNECTION = "Connection";
+    public static final String CONTENT_LENGTH = "Content-Length";
+    public static final String CONTENT_TYPE = "Content-Type";
+    public static final String COOKIE = "Cookie";
+    public static final String EXPECT = "Expect";
+    public static final String HOST = "Host";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_RANGE = "If-Range";
+    public static final String ORIGIN = "Origin";
+    public static final String PRAGMA = "Pragma";
+    public static final String RANGE = "Range";
+    public static final String REFERER = "Referer";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+    public static final String UPGRADE = "Upgrade";
+    public static final String USER_AGENT = "User-Agent";
+
+    private static final String[] WELL_KNOWN = {
+            ACCEPT, ACCEPT_ENCODING, ACCEPT_LANGUAGE, AUTHORIZATION, CACHE_CONTROL, CONNECTION, CONTENT_LENGTH,
+            CONTENT_TYPE, COOKIE, EXPECT, HOST, IF_MODIFIED_SINCE, IF_NONE_MATCH, IF_RANGE, ORIGIN, PRAGMA,
+            RANGE, REFERER, TRANSFER_ENCODING, UPGRADE, USER_AGENT
+    };
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    /* The first value of the field, or null. */
+    public String get(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : values[index];
+    }
+
+    /* Every value of the field in arrival order. */
+    public List<String> getAll(String name) {
+        List<String> all = null;
+        for (int i = 0; i < size; i++) {
+            if (matches(names[i], name)) {
+                if (all == null)
+                    all = new ArrayList<>(2);
+                all.add(values[i]);
+            }
+        }
+        return all == null ? Collections.<String>emptyList() : all;
+    }
+
+    public boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /* True if any value of the field equals the given one, ignoring case. */
+    public boolean containsValue(String name, String value) {
+        for (int i = 0; i < size; i++) {
+            if (matches(names[i], name) && values[i].equalsIgnoreCase(value))
+                return true;
+        }
+        return false;
+    }
+
+    /* True if any value of the field is a comma-separated list holding the given token, ignoring case. */
+    public boolean containsToken(String name, String token) {
+        for (int i = 0; i < size; i++) {
+            if (!matches(names[i], name))
+                continue;
+            for (String element : values[i].split(",")) {
+                if (element.trim().equalsIgnoreCase(token))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(String name, String value) {
+        if (size == names.length) {
+            String[] grownNames = new String[size * 2];
+            String[] grownValues = new String[size * 2];
+            System.arraycopy(names, 0, grownNames, 0, size);
+            System.arraycopy(values, 0, grownValues, 0, size);
+            names = grownNames;
+            values = grownValues;
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            names[i] = null;
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (matches(names[i], name))
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String stored, String name) {
+        return stored == name || stored.equalsIgnoreCase(name);
+    }
+
+    /* The shared constant for a well-known name in any case, otherwise a new String. */
+    public static String intern(CharSequence name) {
+        int length = name.length();
+        for (String known : WELL_KNOWN) {
+            if (known.length() == length && regionMatches(known, name))
+                return known;
+        }
+        return name.toString();
+    }
+
+    /* As intern(CharSequence), for a name held as US-ASCII bytes. */
+    static String intern(byte[] data, int offset, int length) {
+        for (String known : WELL_KNOWN) {
+            if (known.length() == length && regionMatches(known, data, offset))
+                return known;
+        }
+        return new String(data, offset, length, US_ASCII);
+    }
+
+    private static boolean regionMatches(String known, CharSequence name) {
+        for (int i = 0; i < known.length(); i++) {
+            if (!sameLetter(known.charAt(i), name.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(String known, byte[] data, int offset) {
+        for (int i = 0; i < known.length(); i++) {
+            if (!sameLetter(known.charAt(i), data[offset + i]))
+                return false;
+        }
+        return true;
+    }
+
+    /* Header names are tokens, so only ASCII letters need case folding. */
+    private static boolean sameLetter(int a, int b) {
+        if (a == b)
+            return true;
+        int lower = a | 0x20;
+        return lower >= 'a' && lower <= 'z' && lower == (b | 0x20);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(names[i]).append('=').append(values[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -3,44 +3,51 @@ package httpserver.core;
 import httpserver.http.enums.HttpMethod;
 import httpserver.http.enums.HttpVersion;
 import httpserver.util.HttpParsingException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 
 import static httpserver.http.enums.HttpStatusCode.*;
-import static java.nio.charset.StandardCharsets.US_ASCII;
 
+/*
+ * Parses one request at a time from an InputStream. Both engines decode with HttpRequestDecoder; this
+ * stays for callers that only have a stream.
+ */
 public class HttpParser {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(HttpParser.class);
-
     private static final int SP = 0x20;
     private static final int CR = 0x0D;
     private static final int LF = 0x0A;
     private static final int CO = 0x3A;
 
 
-    public static HttpRequest parseHttpRequest(InputStream inputStream) throws HttpParsingException {
-        InputStreamReader reader = new InputStreamReader(inputStream, US_ASCII);
+    public static HttpRequest parseHttpRequest(InputStream reader) throws HttpParsingException {
+        return parseHttpRequest(reader, HttpRequestDecoder.DEFAULT_MAX_BODY_SIZE);
+    }
 
+    public static HttpRequest parseHttpRequest(InputStream reader, long maxBodySize) throws HttpParsingException {
+        return parseHttpRequest(reader, maxBodySize, new HttpHeaders());
+    }
+
+    /*
+     * Parses into the given headers, which are cleared first. A connection passes the same instance for
+     * every request, so a request's headers are only valid until the next one is parsed.
+     */
+    public static HttpRequest parseHttpRequest(InputStream reader, long maxBodySize, HttpHeaders headers) throws HttpParsingException {
         HttpRequest request = new HttpRequest();
+        headers.clear();
+        request.setHeaders(headers);
         try {
             parseRequestLine(reader, request);
-            parseHeaders(reader, request);
-            request.setReader(reader);
+            parseHeaders(reader, headers);
+            parseBodyFraming(reader, request, maxBodySize);
         } catch (IOException e) {
             e.printStackTrace();
         }
         return request;
     }
 
-    private static void parseRequestLine(InputStreamReader reader, HttpRequest request) throws IOException, HttpParsingException {
+    private static void parseRequestLine(InputStream reader, HttpRequest request) throws IOException, HttpParsingException {
         int _byte = 0;
         boolean methodParsed = false;
         boolean requestTargetParsed = false;
@@ -49,7 +56,6 @@ public class HttpParser {
             if (_byte == CR) {
                 _byte = reader.read();
                 if (_byte == LF && methodParsed && requestTargetParsed) {
-                    LOGGER.debug("version to Process: {}", processingDataBuffer.toString());
                     request.setHttpVersion(HttpVersion.getVersion(processingDataBuffer.toString()));
                     return;
                 } else {
@@ -59,11 +65,9 @@ public class HttpParser {
                 throw new HttpParsingException(BAD_REQUEST);
             } else if (_byte == SP) {
                 if (!methodParsed) {
-                    LOGGER.debug("Method to Process: {}", processingDataBuffer.toString());
                     request.setMethod(processingDataBuffer.toString());
                     methodParsed = true;
                 } else if (!requestTargetParsed) {
-                    LOGGER.debug("Request Target to Process: {}", processingDataBuffer.toString());
                     request.setRequestTarget(processingDataBuffer.toString());
                     requestTargetParsed = true;
                 } else {
@@ -87,7 +91,7 @@ public class HttpParser {
         throw new HttpParsingException(BAD_REQUEST);
     }
 
-    private static void parseHeaders(InputStreamReader reader, HttpRequest request) throws IOException, HttpParsingException {
+    private static void parseHeaders(InputStream reader, HttpHeaders headers) throws IOException, HttpParsingException {
         int _byte = 0;
         boolean parsingHeader = false;
         boolean parsedKey = false;
@@ -95,22 +99,19 @@ public class HttpParser {
         String key = null;
         String value;
         StringBuilder processingDataBuffer = new StringBuilder();
-        Map<String, String> headers = new HashMap<>();
         while ((_byte = reader.read()) > 0) {
             exists = true;
             if (_byte == CR) {
                 _byte = reader.read();
                 if (_byte == LF) {
                     if (!parsingHeader) {
-                        request.setHeaders(headers);
                         return;
                     } else {
                         if (!parsedKey)
                             throw new HttpParsingException(BAD_REQUEST);
                         parsingHeader = false;
                         parsedKey = false;
-                        LOGGER.debug("Header to Process: {}: {}", key, processingDataBuffer.toString());
-                        headers.put(key, processingDataBuffer.toString());
+                        headers.add(key, processingDataBuffer.toString());
                         processingDataBuffer.delete(0, processingDataBuffer.length());
                     }
                 } else {
@@ -120,7 +121,7 @@ public class HttpParser {
                 _byte = reader.read();
                 if (_byte == SP) {
                     parsedKey = true;
-                    key = processingDataBuffer.toString();
+                    key = HttpHeaders.intern(processingDataBuffer);
                     processingDataBuffer.delete(0, processingDataBuffer.length());
                 } else {
                     throw new HttpParsingException(BAD_REQUEST);
@@ -134,15 +135,49 @@ public class HttpParser {
         }
         if(exists)
             throw new HttpParsingException(BAD_REQUEST);
-        request.setHeaders(Collections.emptyMap());
     }
 
-    public static void parseBody(InputStreamReader reader, HttpRequest request) throws IOException {
-        int _byte;
-        StringBuilder processingDataBuffer = new StringBuilder();
-        while ((_byte = reader.read()) > 0) {
-            processingDataBuffer.append((char) _byte);
+    /*
+     * A request has a body only when it carries Content-Length or Transfer-Encoding: chunked. Both at
+     * once are rejected, as is any other transfer coding.
+     */
+    private static void parseBodyFraming(InputStream reader, HttpRequest request, long maxBodySize) throws HttpParsingException {
+        String transferEncoding = request.getHeader(HttpHeaders.TRANSFER_ENCODING);
+        String contentLength = request.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (transferEncoding != null) {
+            if (contentLength != null)
+                throw new HttpParsingException(BAD_REQUEST);
+            if (!transferEncoding.trim().equalsIgnoreCase("chunked"))
+                throw new HttpParsingException(NOT_IMPLEMENTED);
+            request.setChunked(true);
+            request.setBody(new ChunkedInputStream(reader, maxBodySize, request));
+            return;
+        }
+        if (contentLength == null)
+            return;
+        long length;
+        try {
+            length = Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpParsingException(BAD_REQUEST);
+        }
+        if (length < 0)
+            throw new HttpParsingException(BAD_REQUEST);
+        if (length > maxBodySize)
+            throw new HttpParsingException(PAYLOAD_TOO_LARGE);
+        request.setContentLength(length);
+        request.setBody(new ContentLengthInputStream(reader, length));
+    }
+
+    /* Reads and discards what the handler left of the body; false if the connection cannot be reused. */
+    static boolean skipBody(HttpRequest request) {
+        InputStream body = request.getBody();
+        try {
+            while (body.skip(Long.MAX_VALUE) > 0 || body.read() >= 0) {
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
         }
-        request.setMessage(processingDataBuffer.toString());
     }
 }
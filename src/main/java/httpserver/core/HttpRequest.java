@@ -1,28 +1,63 @@
 package httpserver.core;
 
 import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpStatusCode;
 import httpserver.http.enums.HttpVersion;
 import httpserver.util.HttpParsingException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
 
 import static httpserver.http.enums.HttpStatusCode.NOT_IMPLEMENTED;
+import static httpserver.http.enums.HttpStatusCode.PAYLOAD_TOO_LARGE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class HttpRequest extends HttpMessage {
 
     private HttpMethod method;
     private String requestTarget;
     private HttpVersion httpVersion;
-    private Map<String, String> headers;
+    private HttpHeaders headers;
+    private long contentLength = -1;
+    private boolean chunked;
+    private HttpStatusCode bodyError;
     private String message;
-    private InputStreamReader reader;
+    private InputStream body;
+    private Map<String, String> pathParameters = Collections.emptyMap();
+
+    /*
+     * Set when the request was decoded by HttpRequestDecoder: the target and headers are slices of
+     * the connection's read buffer and are only turned into Strings on first access, the headers into
+     * the decoder's reusable HttpHeaders. The slices are valid until the connection decodes its next
+     * request.
+     */
+    private byte[] source;
+    private int requestTargetOffset;
+    private int requestTargetLength;
+    private int[] headerSlices;
+    private int headerCount;
+    private boolean headersDecoded;
 
     HttpRequest() {
     }
 
+    HttpRequest(byte[] source, HttpMethod method, int requestTargetOffset, int requestTargetLength,
+                HttpVersion httpVersion, int[] headerSlices, int headerCount, HttpHeaders headers) {
+        this.source = source;
+        this.method = method;
+        this.requestTargetOffset = requestTargetOffset;
+        this.requestTargetLength = requestTargetLength;
+        this.httpVersion = httpVersion;
+        this.headerSlices = headerSlices;
+        this.headerCount = headerCount;
+        this.headers = headers;
+    }
+
     public HttpMethod getMethod() {
         return method;
     }
@@ -38,6 +73,8 @@ public class HttpRequest extends HttpMessage {
     }
 
     public String getRequestTarget() {
+        if (requestTarget == null && source != null)
+            requestTarget = new String(source, requestTargetOffset, requestTargetLength, US_ASCII);
         return requestTarget;
     }
 
@@ -45,6 +82,19 @@ public class HttpRequest extends HttpMessage {
         this.requestTarget = requestTarget;
     }
 
+    /* Values captured from {name} segments and wildcards of the route that matched the target. */
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    public String getPathParameter(String name) {
+        return pathParameters.get(name);
+    }
+
+    public void setPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = Collections.unmodifiableMap(pathParameters);
+    }
+
     public HttpVersion getHttpVersion() {
         return httpVersion;
     }
@@ -57,39 +107,159 @@ public class HttpRequest extends HttpMessage {
         this.method = method;
     }
 
-    public Map<String, String> getHeaders() {
+    public HttpHeaders getHeaders() {
+        if (source != null && !headersDecoded) {
+            headers.clear();
+            for (int i = 0; i < headerCount; i++)
+                headers.add(HttpHeaders.intern(source, headerSlices[i * 4], headerSlices[i * 4 + 1]), headerValue(i));
+            headersDecoded = true;
+        }
         return headers;
     }
 
-    void setHeaders(Map<String, String> headers) {
-        this.headers = Collections.unmodifiableMap(headers);
+    void setHeaders(HttpHeaders headers) {
+        this.headers = headers;
+    }
+
+    public String getHeader(String name) {
+        if (source != null) {
+            int index = findHeader(name);
+            return index < 0 ? null : headerValue(index);
+        }
+        return headers.get(name);
+    }
+
+    /* True if any field of the name lists the token, as Connection does; elements are split on commas and trimmed. */
+    boolean hasHeaderToken(String name, String token) {
+        if (source == null)
+            return headers.containsToken(name, token);
+        for (int i = 0; i < headerCount; i++) {
+            if (!equalsIgnoreCase(headerSlices[i * 4], headerSlices[i * 4 + 1], name))
+                continue;
+            int end = headerSlices[i * 4 + 2] + headerSlices[i * 4 + 3];
+            int start = headerSlices[i * 4 + 2];
+            while (start <= end) {
+                int comma = start;
+                while (comma < end && source[comma] != ',')
+                    comma++;
+                int elementStart = start;
+                int elementEnd = comma;
+                while (elementStart < elementEnd && isWhitespace(source[elementStart]))
+                    elementStart++;
+                while (elementEnd > elementStart && isWhitespace(source[elementEnd - 1]))
+                    elementEnd--;
+                if (equalsIgnoreCase(elementStart, elementEnd - elementStart, token))
+                    return true;
+                start = comma + 1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private int findHeader(String name) {
+        for (int i = 0; i < headerCount; i++) {
+            if (equalsIgnoreCase(headerSlices[i * 4], headerSlices[i * 4 + 1], name))
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean equalsIgnoreCase(int offset, int length, String value) {
+        if (length != value.length())
+            return false;
+        for (int i = 0; i < length; i++) {
+            int a = source[offset + i];
+            int b = value.charAt(i);
+            if (a == b)
+                continue;
+            int lower = a | 0x20;
+            if (lower < 'a' || lower > 'z' || lower != (b | 0x20))
+                return false;
+        }
+        return true;
+    }
+
+    private String headerValue(int index) {
+        return new String(source, headerSlices[index * 4 + 2], headerSlices[index * 4 + 3], US_ASCII);
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    void setContentLength(long contentLength) {
+        this.contentLength = contentLength;
     }
 
+    public boolean isKeepAlive() {
+        if (httpVersion == HttpVersion.HTTP_1_1)
+            return !hasHeaderToken(HttpHeaders.CONNECTION, "close");
+        return hasHeaderToken(HttpHeaders.CONNECTION, "keep-alive");
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    void setChunked(boolean chunked) {
+        this.chunked = chunked;
+    }
+
+    /*
+     * The request body, bounded by Content-Length or decoded from chunked transfer coding. It is read
+     * lazily; whatever the handler leaves unread is discarded before the next request.
+     */
+    public InputStream getBody() {
+        if (body == null)
+            body = new ByteArrayInputStream(new byte[0]);
+        return body;
+    }
+
+    void setBody(InputStream body) {
+        this.body = body;
+    }
+
+    /* The rest of the body decoded as UTF-8. */
     public String getMessage() throws IOException {
-        if(message == null)
-            HttpParser.parseBody(reader,this);
+        if (message == null) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = getBody().read(chunk)) >= 0)
+                content.write(chunk, 0, read);
+            message = new String(content.toByteArray(), UTF_8);
+        }
         return message;
     }
 
-    void setMessage(String message) {
-        this.message = message;
+    /* Set when a chunked body grew past the configured limit while being read. */
+    public boolean isBodyTooLarge() {
+        return bodyError == PAYLOAD_TOO_LARGE;
     }
 
-    InputStreamReader getReader() {
-        return reader;
+    /*
+     * Why a chunked body was refused while being read: 413 when its data grew past the limit, 431 when
+     * its trailer section did. Null otherwise.
+     */
+    public HttpStatusCode getBodyError() {
+        return bodyError;
     }
 
-    void setReader(InputStreamReader reader) {
-        this.reader = reader;
+    void setBodyError(HttpStatusCode bodyError) {
+        this.bodyError = bodyError;
     }
 
     @Override
     public String toString() {
         return "HttpRequest{" +
                 "method=" + method +
-                ", requestTarget='" + requestTarget + '\'' +
+                ", requestTarget='" + getRequestTarget() + '\'' +
                 ", httpVersion=" + httpVersion +
-                ", headers=" + headers +
+                ", headers=" + getHeaders() +
                 ", message='" + message + '\'' +
                 '}';
     }
@@ -0,0 +1,721 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpStatusCode;
+import httpserver.http.enums.HttpVersion;
+import httpserver.util.HttpParsingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static httpserver.http.enums.HttpStatusCode.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/*
+ * Incremental, byte-level request decoder. Bytes are appended to a buffer owned by the decoder (read
+ * straight from a channel or stream, or offered as chunks) and decode() resumes the request line /
+ * headers / body state machine where the previous call stopped, so a request may arrive in any number
+ * of pieces. The method, target, version and headers are recorded as offset/length slices of the
+ * buffer instead of being copied into Strings; they stay valid until next() is called. Bytes after the
+ * end of a request are kept for the next (pipelined) request. A chunked body is decoded in place: the
+ * chunk data is moved down over the chunk-size lines so the body ends up contiguous after the head.
+ * A decoder reading from a stream can instead hand the body out as it arrives; see its constructor.
+ */
+public class HttpRequestDecoder {
+
+    public enum Status {
+        NEED_MORE_DATA,
+        REQUEST_COMPLETE,
+        ERROR
+    }
+
+    private enum State {
+        REQUEST_LINE,
+        HEADERS,
+        BODY,
+        COMPLETE,
+        ERROR
+    }
+
+    private enum ChunkState {
+        SIZE,
+        DATA,
+        DATA_END,
+        TRAILER
+    }
+
+    private static final byte SP = 0x20;
+    private static final byte HT = 0x09;
+    private static final byte CR = 0x0D;
+    private static final byte LF = 0x0A;
+    private static final byte CO = 0x3A;
+
+    static final int MAX_REQUEST_TARGET_LENGTH = 2048;
+    static final int MAX_HEADER_FIELD_LENGTH = 4096;
+    static final int MAX_HEAD_SIZE = 64 * 1024;
+    static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+    static final int MAX_CHUNK_LINE_LENGTH = 4096;
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    /* room kept after the head of a streamed request for reading its body */
+    private static final int BODY_WINDOW = 8 * 1024;
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final byte[][] METHOD_NAMES = new byte[METHODS.length][];
+    private static final HttpVersion[] VERSIONS = HttpVersion.values();
+    private static final byte[][] VERSION_NAMES = new byte[VERSIONS.length][];
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(US_ASCII);
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(US_ASCII);
+    private static final byte[] CHUNKED = "chunked".getBytes(US_ASCII);
+    private static final byte[] EXPECT = "expect".getBytes(US_ASCII);
+    private static final byte[] CONTINUE = "100-continue".getBytes(US_ASCII);
+
+    static {
+        for (int i = 0; i < METHODS.length; i++)
+            METHOD_NAMES[i] = METHODS[i].name().getBytes(US_ASCII);
+        for (int i = 0; i < VERSIONS.length; i++)
+            VERSION_NAMES[i] = VERSIONS[i].getVersion().getBytes(US_ASCII);
+    }
+
+    private final int maxBodySize;
+    private final int maxBufferSize;
+    private final BufferPool pool;
+    private final InputStream source;
+
+    /* Null while the connection has nothing buffered, when a pooled buffer is handed back. */
+    private ByteBuffer bufferView;
+    private byte[] buffer;
+    private int requestStart;
+    private int lineStart;
+    private int scanIndex;
+    private int writeIndex;
+
+    private State state = State.REQUEST_LINE;
+    private HttpStatusCode errorCode;
+    private HttpRequest request;
+    private int[] headerSlices = new int[4 * 16];
+    private final HttpHeaders headers = new HttpHeaders();
+    private int headerCount;
+    private HttpMethod method;
+    private int requestTargetOffset;
+    private int requestTargetLength;
+    private HttpVersion httpVersion;
+    private long contentLength = -1;
+    private boolean chunked;
+    private boolean expectContinue;
+    private int headEnd;
+    private int bodyEnd;
+    private int requestEnd;
+    private ChunkState chunkState;
+    private long chunkRemaining;
+    private int trailerSize;
+
+    public HttpRequestDecoder() {
+        this(DEFAULT_MAX_BODY_SIZE);
+    }
+
+    public HttpRequestDecoder(int maxBodySize) {
+        this(maxBodySize, BufferPool.unpooled(false));
+    }
+
+    /*
+     * Reads into buffers taken from the pool. The buffer goes back to the pool whenever a request has
+     * been consumed and nothing else is buffered, so idle connections hold none; call release() when
+     * the connection closes.
+     */
+    public HttpRequestDecoder(int maxBodySize, BufferPool pool) {
+        this(maxBodySize, pool, null, MAX_HEAD_SIZE + maxBodySize + MAX_CHUNK_LINE_LENGTH + 2);
+    }
+
+    /*
+     * Decodes requests read from source with readFromSource(). A request is complete once its head is
+     * decoded, and its body is read from source as the handler consumes it, through the part of the
+     * buffer after the head, so only the head is held however large the body is. The body must be
+     * read to its end before next().
+     */
+    HttpRequestDecoder(int maxBodySize, BufferPool pool, InputStream source) {
+        this(maxBodySize, pool, source, MAX_HEAD_SIZE + BODY_WINDOW);
+    }
+
+    private HttpRequestDecoder(int maxBodySize, BufferPool pool, InputStream source, int maxBufferSize) {
+        this.maxBodySize = maxBodySize;
+        this.maxBufferSize = maxBufferSize;
+        this.pool = pool;
+        this.source = source;
+    }
+
+    /*
+     * Appends as much of the chunk as the current request needs and advances the decoder. Bytes that
+     * are not consumed stay in the chunk; offer it again after next().
+     */
+    public Status offer(ByteBuffer chunk) {
+        Status status = decode();
+        while (status == Status.NEED_MORE_DATA && chunk.hasRemaining()) {
+            if (!makeRoom())
+                return decode();
+            int count = Math.min(chunk.remaining(), buffer.length - writeIndex);
+            chunk.get(buffer, writeIndex, count);
+            writeIndex += count;
+            status = decode();
+        }
+        return status;
+    }
+
+    /* Reads nothing, returning 0, while the buffer has no room; see hasRoom(). */
+    int readFrom(ReadableByteChannel channel) throws IOException {
+        if (!makeRoom())
+            return 0;
+        bufferView.limit(buffer.length).position(writeIndex);
+        int read = channel.read(bufferView);
+        if (read > 0)
+            writeIndex += read;
+        return read;
+    }
+
+    /* Reads whatever the source stream has into the buffer; -1 once the stream has ended. */
+    int readFromSource() throws IOException {
+        if (!makeRoom())
+            return 0;
+        int read = source.read(buffer, writeIndex, buffer.length - writeIndex);
+        if (read > 0)
+            writeIndex += read;
+        return read;
+    }
+
+    public Status decode() {
+        if (buffer == null)
+            return state == State.ERROR ? Status.ERROR : Status.NEED_MORE_DATA;
+        try {
+            while (state == State.REQUEST_LINE || state == State.HEADERS) {
+                int lineEnd = indexOf(buffer, scanIndex, writeIndex, LF);
+                if (lineEnd < 0) {
+                    scanIndex = writeIndex;
+                    if (state == State.REQUEST_LINE)
+                        parseRequestLine(buffer, lineStart, writeIndex, false);
+                    else
+                        parseHeaderLine(buffer, lineStart, writeIndex, false);
+                    checkHeadSize(writeIndex);
+                    return Status.NEED_MORE_DATA;
+                }
+                checkHeadSize(lineEnd + 1);
+                int contentEnd = lineEndBeforeCR(buffer, lineStart, lineEnd);
+                if (state == State.REQUEST_LINE) {
+                    parseRequestLine(buffer, lineStart, contentEnd, true);
+                    state = State.HEADERS;
+                } else if (contentEnd == lineStart) {
+                    startBody(lineEnd + 1);
+                } else {
+                    parseHeaderLine(buffer, lineStart, contentEnd, true);
+                }
+                lineStart = lineEnd + 1;
+                scanIndex = lineStart;
+            }
+            if (state == State.BODY && source != null) {
+                completeStreamedRequest();
+            } else if (state == State.BODY) {
+                if (chunked ? !decodeChunks() : writeIndex < requestEnd)
+                    return Status.NEED_MORE_DATA;
+                completeRequest();
+            }
+        } catch (HttpParsingException e) {
+            state = State.ERROR;
+            errorCode = e.getErrorCode();
+        }
+        return state == State.ERROR ? Status.ERROR : Status.REQUEST_COMPLETE;
+    }
+
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    public HttpStatusCode getErrorCode() {
+        return errorCode;
+    }
+
+    /*
+     * Discards the completed request and prepares for the next one, keeping any bytes already
+     * buffered after it.
+     */
+    public void next() {
+        requestStart = state == State.COMPLETE ? requestEnd : writeIndex;
+        if (requestStart == writeIndex) {
+            requestStart = 0;
+            writeIndex = 0;
+            if (!pool.isUnpooled())
+                release();
+        }
+        lineStart = requestStart;
+        scanIndex = requestStart;
+        state = State.REQUEST_LINE;
+        errorCode = null;
+        request = null;
+        headerCount = 0;
+        contentLength = -1;
+        chunked = false;
+        expectContinue = false;
+    }
+
+    boolean hasBufferedData() {
+        return writeIndex > requestStart;
+    }
+
+    /* True once a request head is decoded and its body has not fully arrived. */
+    boolean isReadingBody() {
+        return state == State.BODY;
+    }
+
+    /* Hands the buffer back to the pool; the decoder takes a new one if more data arrives. */
+    void release() {
+        pool.release(bufferView);
+        bufferView = null;
+        buffer = null;
+    }
+
+    /*
+     * True once, when the head of a request that sent Expect: 100-continue has been decoded and its
+     * body is acceptable, so the connection should send the interim response before the body arrives.
+     */
+    boolean takeContinueExpected() {
+        boolean expected = expectContinue;
+        expectContinue = false;
+        return expected;
+    }
+
+    private void checkHeadSize(int headLength) throws HttpParsingException {
+        if (headLength - requestStart > MAX_HEAD_SIZE)
+            throw new HttpParsingException(HEADER_TOO_LARGE);
+    }
+
+    private void startBody(int headEnd) throws HttpParsingException {
+        if (chunked && contentLength >= 0)
+            throw new HttpParsingException(BAD_REQUEST);
+        if (contentLength > maxBodySize)
+            throw new HttpParsingException(PAYLOAD_TOO_LARGE);
+        this.headEnd = headEnd;
+        this.bodyEnd = headEnd;
+        if (chunked) {
+            chunkState = ChunkState.SIZE;
+            scanIndex = headEnd;
+        } else {
+            this.requestEnd = headEnd + (int) Math.max(0, contentLength);
+        }
+        expectContinue = httpVersion == HttpVersion.HTTP_1_1 && (chunked || contentLength > 0)
+                && findHeader(EXPECT, CONTINUE);
+        state = State.BODY;
+    }
+
+    /* Returns true once the last chunk and the trailer section have been read. */
+    private boolean decodeChunks() throws HttpParsingException {
+        while (true) {
+            if (chunkState == ChunkState.DATA) {
+                int available = (int) Math.min(chunkRemaining, writeIndex - scanIndex);
+                if (available == 0)
+                    return false;
+                if (scanIndex != bodyEnd)
+                    System.arraycopy(buffer, scanIndex, buffer, bodyEnd, available);
+                bodyEnd += available;
+                scanIndex += available;
+                chunkRemaining -= available;
+                if (chunkRemaining == 0)
+                    chunkState = ChunkState.DATA_END;
+                continue;
+            }
+            if (chunkState == ChunkState.DATA_END) {
+                if (writeIndex - scanIndex < 2)
+                    return false;
+                if (buffer[scanIndex] != CR || buffer[scanIndex + 1] != LF)
+                    throw new HttpParsingException(BAD_REQUEST);
+                scanIndex += 2;
+                chunkState = ChunkState.SIZE;
+                continue;
+            }
+            int lineEnd = indexOf(buffer, scanIndex, writeIndex, LF);
+            if (lineEnd < 0) {
+                if (writeIndex - scanIndex > MAX_CHUNK_LINE_LENGTH)
+                    throw new HttpParsingException(BAD_REQUEST);
+                return false;
+            }
+            int contentEnd = lineEndBeforeCR(buffer, scanIndex, lineEnd);
+            if (contentEnd - scanIndex > MAX_CHUNK_LINE_LENGTH)
+                throw new HttpParsingException(BAD_REQUEST);
+            if (chunkState == ChunkState.TRAILER) {
+                boolean lastLine = contentEnd == scanIndex;
+                // trailer lines are discarded as they are read, so only this bounds the section
+                trailerSize += lineEnd + 1 - scanIndex;
+                if (trailerSize > MAX_HEAD_SIZE)
+                    throw new HttpParsingException(HEADER_TOO_LARGE);
+                scanIndex = lineEnd + 1;
+                if (lastLine) {
+                    requestEnd = scanIndex;
+                    return true;
+                }
+                continue;
+            }
+            long size = parseChunkSize(buffer, scanIndex, contentEnd);
+            scanIndex = lineEnd + 1;
+            if (size == 0) {
+                chunkState = ChunkState.TRAILER;
+                trailerSize = 0;
+                continue;
+            }
+            if (bodyEnd - headEnd + size > maxBodySize)
+                throw new HttpParsingException(PAYLOAD_TOO_LARGE);
+            chunkRemaining = size;
+            chunkState = ChunkState.DATA;
+        }
+    }
+
+    private void completeRequest() {
+        if (!chunked)
+            bodyEnd = requestEnd;
+        request = new HttpRequest(buffer, method, requestTargetOffset, requestTargetLength,
+                httpVersion, headerSlices, headerCount, headers);
+        request.setContentLength(contentLength);
+        request.setChunked(chunked);
+        request.setBody(new ByteArrayInputStream(buffer, headEnd, bodyEnd - headEnd));
+        state = State.COMPLETE;
+    }
+
+    /*
+     * Hands the request out as soon as its head is decoded, with a body that reads on from the source.
+     * The head is moved to the front and the buffer grown, if need be, so the body has a window after
+     * it; the buffer cannot move once the request points into it. requestEnd then tracks how far the
+     * body has been read, so whatever follows it is left for the next request.
+     */
+    private void completeStreamedRequest() {
+        if (requestStart > 0)
+            shiftToFront();
+        if (buffer.length - headEnd < BODY_WINDOW)
+            grow(headEnd + BODY_WINDOW);
+        requestEnd = headEnd;
+        request = new HttpRequest(buffer, method, requestTargetOffset, requestTargetLength,
+                httpVersion, headerSlices, headerCount, headers);
+        request.setContentLength(contentLength);
+        request.setChunked(chunked);
+        if (chunked)
+            request.setBody(new ChunkedInputStream(new StreamedBody(), maxBodySize, request));
+        else if (contentLength > 0)
+            request.setBody(new ContentLengthInputStream(new StreamedBody(), contentLength));
+        state = State.COMPLETE;
+    }
+
+    /* Takes a buffer from the pool if none is held, otherwise makes room at the end of it. */
+    private boolean makeRoom() {
+        if (buffer == null) {
+            bufferView = pool.acquire(INITIAL_BUFFER_SIZE);
+            buffer = bufferView.array();
+            return true;
+        }
+        return hasRoom();
+    }
+
+    /*
+     * Makes room at the end of the buffer if it can: the gap left by decoded chunk-size lines is
+     * closed, or an incomplete request is moved to the front (shifting every recorded slice),
+     * otherwise the buffer grows. Returns false when there is none. A completed request is never
+     * moved because the HttpRequest handed out still points at it, so reading has to wait for
+     * next(); a request that does not fit the largest buffer fails with 431 or 413.
+     */
+    boolean hasRoom() {
+        if (buffer == null || writeIndex < buffer.length)
+            return true;
+        if (state == State.BODY && chunked && scanIndex > bodyEnd) {
+            System.arraycopy(buffer, scanIndex, buffer, bodyEnd, writeIndex - scanIndex);
+            writeIndex -= scanIndex - bodyEnd;
+            scanIndex = bodyEnd;
+            return true;
+        }
+        if (requestStart > 0 && state != State.COMPLETE && state != State.ERROR) {
+            shiftToFront();
+            return true;
+        }
+        if (buffer.length < maxBufferSize) {
+            grow(Math.min(buffer.length * 2, maxBufferSize));
+            return true;
+        }
+        // the limits decode() checks keep a single request smaller than this, but it is the last guard
+        if (requestStart == 0 && decode() == Status.NEED_MORE_DATA) {
+            errorCode = state == State.BODY ? PAYLOAD_TOO_LARGE : HEADER_TOO_LARGE;
+            state = State.ERROR;
+        }
+        return false;
+    }
+
+    private void shiftToFront() {
+        int shift = requestStart;
+        System.arraycopy(buffer, requestStart, buffer, 0, writeIndex - requestStart);
+        writeIndex -= shift;
+        lineStart -= shift;
+        scanIndex -= shift;
+        requestTargetOffset -= shift;
+        for (int i = 0; i < headerCount; i++) {
+            headerSlices[i * 4] -= shift;
+            headerSlices[i * 4 + 2] -= shift;
+        }
+        headEnd -= shift;
+        bodyEnd -= shift;
+        requestEnd -= shift;
+        requestStart = 0;
+    }
+
+    private void grow(int capacity) {
+        ByteBuffer grown = pool.acquire(capacity);
+        System.arraycopy(buffer, 0, grown.array(), 0, writeIndex);
+        pool.release(bufferView);
+        bufferView = grown;
+        buffer = grown.array();
+    }
+
+    private void parseRequestLine(byte[] data, int start, int end, boolean complete) throws HttpParsingException {
+        end = checkNoCR(data, start, end, complete);
+        int methodEnd = indexOf(data, start, end, SP);
+        int methodLength = (methodEnd < 0 ? end : methodEnd) - start;
+        if (methodLength > HttpMethod.MAX_LENGTH)
+            throw new HttpParsingException(NOT_IMPLEMENTED);
+        if (methodEnd < 0) {
+            if (complete)
+                throw new HttpParsingException(BAD_REQUEST);
+            return;
+        }
+        method = matchMethod(data, start, methodLength);
+
+        int targetStart = methodEnd + 1;
+        int targetEnd = indexOf(data, targetStart, end, SP);
+        int targetLength = (targetEnd < 0 ? end : targetEnd) - targetStart;
+        if (targetLength > MAX_REQUEST_TARGET_LENGTH)
+            throw new HttpParsingException(URI_TOO_LONG);
+        if (targetEnd < 0) {
+            if (complete)
+                throw new HttpParsingException(BAD_REQUEST);
+            return;
+        }
+        requestTargetOffset = targetStart;
+        requestTargetLength = targetLength;
+
+        int versionStart = targetEnd + 1;
+        int versionEnd = indexOf(data, versionStart, end, SP);
+        if ((versionEnd < 0 ? end : versionEnd) - versionStart > HttpVersion.MAX_LENGTH)
+            throw new HttpParsingException(VERSION_NOT_SUPPORTED);
+        if (versionEnd >= 0)
+            throw new HttpParsingException(BAD_REQUEST);
+        if (complete)
+            httpVersion = matchVersion(data, versionStart, end - versionStart);
+    }
+
+    private void parseHeaderLine(byte[] data, int start, int end, boolean complete) throws HttpParsingException {
+        end = checkNoCR(data, start, end, complete);
+        int colon = indexOf(data, start, end, CO);
+        int nameLength = (colon < 0 ? end : colon) - start;
+        if (nameLength > MAX_HEADER_FIELD_LENGTH)
+            throw new HttpParsingException(HEADER_TOO_LARGE);
+        if (colon < 0 || colon + 1 == end) {
+            if (complete)
+                throw new HttpParsingException(BAD_REQUEST);
+            return;
+        }
+        if (nameLength == 0 || data[colon + 1] != SP)
+            throw new HttpParsingException(BAD_REQUEST);
+        int valueStart = colon + 2;
+        if (end - valueStart > MAX_HEADER_FIELD_LENGTH)
+            throw new HttpParsingException(HEADER_TOO_LARGE);
+        if (!complete)
+            return;
+        int valueEnd = end;
+        while (valueStart < valueEnd && isWhitespace(data[valueStart]))
+            valueStart++;
+        while (valueEnd > valueStart && isWhitespace(data[valueEnd - 1]))
+            valueEnd--;
+        addHeader(start, nameLength, valueStart, valueEnd - valueStart);
+        if (equalsIgnoreCase(data, start, nameLength, CONTENT_LENGTH))
+            parseContentLength(data, valueStart, valueEnd - valueStart);
+        else if (equalsIgnoreCase(data, start, nameLength, TRANSFER_ENCODING))
+            parseTransferEncoding(data, valueStart, valueEnd - valueStart);
+    }
+
+    private void addHeader(int nameOffset, int nameLength, int valueOffset, int valueLength) {
+        int slot = headerCount * 4;
+        if (slot == headerSlices.length) {
+            int[] grown = new int[headerSlices.length * 2];
+            System.arraycopy(headerSlices, 0, grown, 0, headerSlices.length);
+            headerSlices = grown;
+        }
+        headerSlices[slot] = nameOffset;
+        headerSlices[slot + 1] = nameLength;
+        headerSlices[slot + 2] = valueOffset;
+        headerSlices[slot + 3] = valueLength;
+        headerCount++;
+    }
+
+    private void parseContentLength(byte[] data, int offset, int length) throws HttpParsingException {
+        if (length == 0 || length > 18)
+            throw new HttpParsingException(BAD_REQUEST);
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw new HttpParsingException(BAD_REQUEST);
+            value = value * 10 + digit;
+        }
+        if (contentLength >= 0 && contentLength != value)
+            throw new HttpParsingException(BAD_REQUEST);
+        contentLength = value;
+    }
+
+    /* Only chunked is supported, and it may only be applied once. */
+    private void parseTransferEncoding(byte[] data, int offset, int length) throws HttpParsingException {
+        if (!equalsIgnoreCase(data, offset, length, CHUNKED))
+            throw new HttpParsingException(NOT_IMPLEMENTED);
+        if (chunked)
+            throw new HttpParsingException(BAD_REQUEST);
+        chunked = true;
+    }
+
+    private static long parseChunkSize(byte[] data, int start, int end) throws HttpParsingException {
+        int extension = indexOf(data, start, end, (byte) ';');
+        if (extension >= 0)
+            end = extension;
+        while (end > start && isWhitespace(data[end - 1]))
+            end--;
+        if (end == start || end - start > 15)
+            throw new HttpParsingException(BAD_REQUEST);
+        long size = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(data[i], 16);
+            if (digit < 0)
+                throw new HttpParsingException(BAD_REQUEST);
+            size = size * 16 + digit;
+        }
+        return size;
+    }
+
+    private boolean findHeader(byte[] name, byte[] value) {
+        for (int i = 0; i < headerCount; i++) {
+            if (equalsIgnoreCase(buffer, headerSlices[i * 4], headerSlices[i * 4 + 1], name)
+                    && equalsIgnoreCase(buffer, headerSlices[i * 4 + 2], headerSlices[i * 4 + 3], value))
+                return true;
+        }
+        return false;
+    }
+
+    private static HttpMethod matchMethod(byte[] data, int offset, int length) throws HttpParsingException {
+        for (int i = 0; i < METHOD_NAMES.length; i++) {
+            if (equals(data, offset, length, METHOD_NAMES[i]))
+                return METHODS[i];
+        }
+        throw new HttpParsingException(NOT_IMPLEMENTED);
+    }
+
+    private static HttpVersion matchVersion(byte[] data, int offset, int length) throws HttpParsingException {
+        for (int i = 0; i < VERSION_NAMES.length; i++) {
+            if (equals(data, offset, length, VERSION_NAMES[i]))
+                return VERSIONS[i];
+        }
+        throw new HttpParsingException(VERSION_NOT_SUPPORTED);
+    }
+
+    /*
+     * A complete line must end in CRLF; a partial line may only hold a CR as its last byte, which is
+     * left out of the returned end.
+     */
+    private static int lineEndBeforeCR(byte[] data, int lineStart, int lf) throws HttpParsingException {
+        if (lf == lineStart || data[lf - 1] != CR)
+            throw new HttpParsingException(BAD_REQUEST);
+        return lf - 1;
+    }
+
+    private static int checkNoCR(byte[] data, int start, int end, boolean complete) throws HttpParsingException {
+        int cr = indexOf(data, start, end, CR);
+        if (cr < 0)
+            return end;
+        if (complete || cr < end - 1)
+            throw new HttpParsingException(BAD_REQUEST);
+        return cr;
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] data, int offset, int length, byte[] expected) {
+        if (length != expected.length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != expected[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] data, int offset, int length, byte[] lowerCase) {
+        if (length != lowerCase.length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + i];
+            int expected = lowerCase[i];
+            if (b != expected && (expected < 'a' || expected > 'z' || (b | 0x20) != expected))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == SP || b == HT;
+    }
+
+    /* Body of a streamed request: the bytes buffered after its head, then reads from the source into the same window. */
+    private class StreamedBody extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            if (!fill())
+                return -1;
+            return buffer[requestEnd++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (!fill())
+                return -1;
+            int count = Math.min(len, writeIndex - requestEnd);
+            System.arraycopy(buffer, requestEnd, b, off, count);
+            requestEnd += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0 || !fill())
+                return 0;
+            int count = (int) Math.min(n, writeIndex - requestEnd);
+            requestEnd += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return requestEnd < writeIndex ? writeIndex - requestEnd : source.available();
+        }
+
+        /* Refills the window once everything in it has been read; false at the end of the source. */
+        private boolean fill() throws IOException {
+            if (requestEnd < writeIndex)
+                return true;
+            requestEnd = headEnd;
+            writeIndex = headEnd;
+            int read = source.read(buffer, headEnd, buffer.length - headEnd);
+            if (read <= 0)
+                return false;
+            writeIndex += read;
+            return true;
+        }
+    }
+}
@@ -3,18 +3,33 @@ package httpserver.core;
 import httpserver.http.enums.HttpStatusCode;
 import httpserver.http.enums.HttpVersion;
 
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static httpserver.http.enums.HttpStatusCode.NOT_MODIFIED;
 import static httpserver.http.enums.HttpStatusCode.OK;
 
 public class HttpResponse extends HttpMessage {
 
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
     private final HttpVersion httpVersion;
     private final Map<String, String> headers;
     private HttpStatusCode statusCode;
     private String message;
+    private List<ByteBuffer> bodyBuffers;
+    private List<FileRegion> bodyRegions;
+    private ResponseSink sink;
+    private boolean keepAlive;
+    private boolean withBody;
+    private ChunkedOutputStream outputStream;
+    private BodyProducer producer;
 
     HttpResponse(HttpVersion httpVersion) {
         this.httpVersion = httpVersion;
@@ -26,7 +41,7 @@ public class HttpResponse extends HttpMessage {
         this.httpVersion = httpVersion == null ? HttpVersion.HTTP_1_0 : httpVersion;
         this.headers = new HashMap<>();
         this.statusCode = statusCode;
-        this.message = message;
+        setMessage(message);
     }
 
     public HttpVersion getHttpVersion() {
@@ -49,34 +64,140 @@ public class HttpResponse extends HttpMessage {
         return message;
     }
 
+    /*
+     * The body is a sequence of parts, each a buffer optionally followed by a file region; a message
+     * is encoded once into a single part. Setting the message or a whole body discards whatever body
+     * was set before.
+     */
     public void setMessage(String message) {
+        clearBody();
+        if (message != null)
+            addBodyPart(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
         this.message = message;
     }
 
-    byte[] getResponseBytes() {
-        final String SP = " ";
-        final String CRLF = "\n\r";
-        final String CO = ":";
-
-        StringBuilder response = new StringBuilder();
-        response.append(httpVersion.getVersion());
-        response.append(SP);
-        response.append(statusCode.getSTATUS_CODE());
-        response.append(SP);
-        response.append(statusCode.getMESSAGE());
-        response.append(CRLF);
-        headers.forEach((k, v) -> {
-            response.append(k);
-            response.append(CO);
-            response.append(SP);
-            response.append(v);
-            response.append(CRLF);
-        });
-        response.append(CRLF);
-        if (getMessage() != null)
-            response.append(getMessage());
-        response.append(CRLF);
-        response.append(CRLF);
-        return new String(response).getBytes(StandardCharsets.US_ASCII);
+    public void setBody(FileChannel fileChannel, long position, long count) {
+        clearBody();
+        addBodyPart(fileChannel, position, count);
+    }
+
+    /* The buffer may be shared between responses; only its contents between position and limit are sent. */
+    public void setBody(ByteBuffer body) {
+        clearBody();
+        addBodyPart(body);
+    }
+
+    public void addBodyPart(ByteBuffer part) {
+        message = null;
+        if (bodyBuffers == null) {
+            bodyBuffers = new ArrayList<>(2);
+            bodyRegions = new ArrayList<>(2);
+        }
+        bodyBuffers.add(part.duplicate());
+        bodyRegions.add(null);
+    }
+
+    /* Regions of the same channel may be added several times; the channel is closed after the last one is sent. */
+    public void addBodyPart(FileChannel fileChannel, long position, long count) {
+        if (bodyBuffers == null || bodyRegions.get(bodyRegions.size() - 1) != null)
+            addBodyPart(EMPTY);
+        for (FileRegion region : bodyRegions) {
+            if (region != null && region.getFileChannel() == fileChannel)
+                region.setClosesChannel(false);
+        }
+        bodyRegions.set(bodyRegions.size() - 1, new FileRegion(fileChannel, position, count));
+    }
+
+    /*
+     * Streams the body from the producer once the handler returns, asking for each piece as the
+     * connection takes the last; the head is sent as for getOutputStream().
+     */
+    public void setBody(BodyProducer producer) {
+        clearBody();
+        this.producer = producer;
+    }
+
+    /*
+     * Streams the body instead of holding it. The head is sent when the stream is first flushed or
+     * its buffer fills; the server closes the stream when the handler returns. Writes never block the
+     * NIO event loop, so there whatever the client has not taken yet is queued in memory; large bodies
+     * for slow clients are better produced with setBody(BodyProducer).
+     */
+    public OutputStream getOutputStream() {
+        if (outputStream == null) {
+            if (sink == null)
+                throw new IllegalStateException("Response streaming is not available");
+            clearBody();
+            outputStream = new ChunkedOutputStream(this, sink, keepAlive, withBody);
+        }
+        return outputStream;
+    }
+
+    void prepareStream(ResponseSink sink, boolean keepAlive, boolean withBody) {
+        this.sink = sink;
+        this.keepAlive = keepAlive;
+        this.withBody = withBody;
+    }
+
+    ChunkedOutputStream getStream() {
+        return outputStream;
+    }
+
+    BodyProducer getProducer() {
+        return producer;
+    }
+
+    /* Opens the stream the producer writes to, keeping the producer. */
+    ChunkedOutputStream openProducerStream() {
+        if (sink == null)
+            throw new IllegalStateException("Response streaming is not available");
+        outputStream = new ChunkedOutputStream(this, sink, keepAlive, withBody);
+        return outputStream;
+    }
+
+    boolean isCommitted() {
+        return outputStream != null && outputStream.isCommitted();
+    }
+
+    private void clearBody() {
+        if (outputStream != null)
+            throw new IllegalStateException("Response body is being streamed");
+        if (bodyRegions != null) {
+            for (FileRegion region : bodyRegions) {
+                if (region != null)
+                    region.close();
+            }
+        }
+        if (producer != null)
+            producer.close();
+        this.producer = null;
+        this.bodyBuffers = null;
+        this.bodyRegions = null;
+        this.message = null;
+    }
+
+    List<ByteBuffer> getBodyBuffers() {
+        return bodyBuffers;
+    }
+
+    List<FileRegion> getBodyRegions() {
+        return bodyRegions;
+    }
+
+    /* A 304 never carries a body, so it gets no Content-Length either. */
+    boolean isBodyAllowed() {
+        return statusCode != NOT_MODIFIED;
+    }
+
+    long getBodyLength() {
+        if (bodyBuffers == null)
+            return 0;
+        long length = 0;
+        for (int i = 0; i < bodyBuffers.size(); i++) {
+            length += bodyBuffers.get(i).remaining();
+            if (bodyRegions.get(i) != null)
+                length += bodyRegions.get(i).getCount();
+        }
+        return length;
     }
 }
@@ -0,0 +1,342 @@
+package httpserver.core;
+
+import httpserver.config.Configuration;
+import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpVersion;
+import httpserver.log.AccessLog;
+import httpserver.metrics.ServerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static httpserver.http.enums.HttpStatusCode.INTERNAL_SERVER_ERROR;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+class NioConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioConnection.class);
+
+    private static final int MAX_PIPELINED_RESPONSES = 16;
+    private static final int MAX_BUFFERED_BODY_SIZE = Integer.MAX_VALUE / 2;
+    private static final int MAX_PIECES_PER_EVENT = 16;
+    private static final ByteBuffer CONTINUE = ByteBuffer.wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(US_ASCII));
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final BiConsumer<HttpRequest, HttpResponse> process;
+    private final int maxKeepAliveRequests;
+    private final long keepAliveTimeoutNanos;
+    private final long headerReadTimeoutNanos;
+    private final long bodyReadTimeoutNanos;
+    private final long writeTimeoutNanos;
+    private final TimerWheel timer;
+    private final TimerWheel.Timeout timeout;
+    private final ResponseQueue pendingWrites = new ResponseQueue(MAX_PIPELINED_RESPONSES);
+    private final ResponseEncoder encoder;
+    private final HttpRequestDecoder decoder;
+    private final ServerMetrics metrics = ServerMetrics.get();
+    private final AccessLog accessLog = AccessLog.get();
+    private final InetAddress remoteAddress;
+    private final AdmissionControl admission;
+    private final ResponseSink streamSink = new ResponseSink() {
+        @Override
+        public void write(ByteBuffer... buffers) throws IOException {
+            writeStreamed(buffers);
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+    private BodyProducer producer;
+    private ChunkedOutputStream producerStream;
+
+    private int served;
+    private boolean closeAfterWrite;
+    private long parseNanos;
+    private long requestStart;
+    private boolean requestStarted;
+    private boolean headerDeadlineSet;
+    private boolean closed;
+
+    NioConnection(SocketChannel channel, SelectionKey key, Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process,
+                  AdmissionControl admission, TimerWheel timer) {
+        this.channel = channel;
+        this.admission = admission;
+        this.key = key;
+        this.remoteAddress = channel.socket().getInetAddress();
+        this.process = process;
+        this.maxKeepAliveRequests = configuration.getMaxKeepAliveRequests();
+        this.keepAliveTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getKeepAliveTimeout());
+        this.headerReadTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getHeaderReadTimeout());
+        this.bodyReadTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getBodyReadTimeout());
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getWriteTimeout());
+        this.timer = timer;
+        this.timeout = timer.newTimeout(this::onTimeout);
+        boolean pooled = configuration.isBufferPoolEnabled();
+        int maxBodySize = Math.min(configuration.getMaxRequestBodySize(), configuration.getNioMaxRequestBodySize());
+        this.decoder = new HttpRequestDecoder(Math.min(maxBodySize, MAX_BUFFERED_BODY_SIZE),
+                pooled ? BufferPool.heap() : BufferPool.unpooled(false));
+        this.encoder = new ResponseEncoder(pooled ? BufferPool.direct() : BufferPool.unpooled(true));
+        metrics.connectionOpened();
+        timer.schedule(timeout, keepAliveTimeoutNanos);
+    }
+
+    void onReadable() throws IOException {
+        int read = decoder.readFrom(channel);
+        if (read < 0) {
+            close();
+            return;
+        }
+        metrics.bytesReceived(read);
+        serveBufferedRequests();
+        updateTimeout();
+    }
+
+    void onWritable() throws IOException {
+        if (flush()) {
+            serveBufferedRequests();
+        }
+        updateTimeout();
+    }
+
+    /*
+     * Arms the timeout for whatever the connection now waits on: a write that must drain, the next
+     * read of a body, the rest of a request head, or the next request. Each event re-arms it, except
+     * that a head gets one deadline from its first bytes however slowly the rest arrives.
+     */
+    private void updateTimeout() {
+        if (closed) {
+            return;
+        }
+        if (requestStarted && pendingWrites.isEmpty() && !decoder.isReadingBody()) {
+            if (!headerDeadlineSet) {
+                timer.schedule(timeout, headerReadTimeoutNanos);
+                headerDeadlineSet = true;
+            }
+            return;
+        }
+        headerDeadlineSet = false;
+        if (!pendingWrites.isEmpty()) {
+            timer.schedule(timeout, writeTimeoutNanos);
+        } else if (decoder.isReadingBody()) {
+            timer.schedule(timeout, bodyReadTimeoutNanos);
+        } else {
+            timer.schedule(timeout, keepAliveTimeoutNanos);
+        }
+    }
+
+    private void onTimeout() {
+        LOGGER.debug("Connection timed out");
+        close();
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        timer.cancel(timeout);
+        metrics.connectionClosed();
+        admission.release();
+        pendingWrites.clear();
+        encoder.reset();
+        decoder.release();
+        if (producer != null) {
+            producer.close();
+            producer = null;
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /*
+     * Handles every complete request already in the read buffer before writing, so pipelined
+     * requests run ahead and their responses go out in order with a single gathering write. A
+     * produced body holds back the requests after it until the producer is done.
+     */
+    private void serveBufferedRequests() throws IOException {
+        while (true) {
+            while (producer == null && !closeAfterWrite && !pendingWrites.isFull()) {
+                long parseStart = System.nanoTime();
+                if (!requestStarted && decoder.hasBufferedData()) {
+                    requestStart = parseStart;
+                    requestStarted = true;
+                }
+                HttpRequestDecoder.Status status = decoder.decode();
+                // a request arriving over several reads is timed across all of its decode calls
+                parseNanos += System.nanoTime() - parseStart;
+                if (status == HttpRequestDecoder.Status.NEED_MORE_DATA) {
+                    if (decoder.takeContinueExpected()) {
+                        pendingWrites.add(CONTINUE.duplicate(), null, null);
+                    }
+                    break;
+                }
+                if (status == HttpRequestDecoder.Status.ERROR) {
+                    metrics.parseError(decoder.getErrorCode());
+                    parseNanos = 0;
+                    HttpResponse response = new HttpResponse(HttpVersion.HTTP_1_0, decoder.getErrorCode(), decoder.getErrorCode().MESSAGE);
+                    long bodyBytes = respond(response, false, true);
+                    accessLog.log(remoteAddress, null, response.getStatusCode(), bodyBytes, System.nanoTime() - requestStart);
+                    requestStarted = false;
+                    break;
+                }
+                metrics.getParseTime().record(parseNanos);
+                parseNanos = 0;
+                handleRequest(decoder.getRequest());
+                requestStarted = false;
+                // a producer may still read the request, which points into the decoder's buffer
+                if (producer == null) {
+                    decoder.next();
+                }
+            }
+            if (producer != null) {
+                if (!produce()) {
+                    return;
+                }
+                continue;
+            }
+            if (pendingWrites.isEmpty()) {
+                if (closeAfterWrite) {
+                    close();
+                }
+                return;
+            }
+            boolean queueFull = pendingWrites.isFull();
+            if (!flush() || !queueFull) {
+                return;
+            }
+        }
+    }
+
+    private void handleRequest(HttpRequest request) throws IOException {
+        served++;
+        boolean keepAlive = request.isKeepAlive() && served < maxKeepAliveRequests;
+        boolean withBody = request.getMethod() != HttpMethod.HEAD;
+        HttpResponse response = new HttpResponse(request.getHttpVersion());
+        response.prepareStream(streamSink, keepAlive, withBody);
+        long handleStart = System.nanoTime();
+        try {
+            process.accept(request, response);
+        } catch (RuntimeException e) {
+            LOGGER.error("Problem with processing request", e);
+            if (response.isCommitted()) {
+                metrics.request(request.getMethod(), response.getStatusCode());
+                throw new IOException("Handler failed after the response was committed", e);
+            }
+            if (response.getProducer() != null) {
+                response.getProducer().close();
+            }
+            response = new HttpResponse(request.getHttpVersion(), INTERNAL_SERVER_ERROR, INTERNAL_SERVER_ERROR.MESSAGE);
+            keepAlive = false;
+        }
+        if (response.getProducer() != null) {
+            producer = response.getProducer();
+            producerStream = response.openProducerStream();
+        } else if (response.getStream() != null) {
+            response.getStream().close();
+        }
+        metrics.getHandleTime().record(System.nanoTime() - handleStart);
+        metrics.request(request.getMethod(), response.getStatusCode());
+        long bodyBytes = -1;
+        if (response.getStream() == null) {
+            bodyBytes = respond(response, keepAlive, withBody);
+        } else if (producer == null) {
+            // a produced body is still being written, so produce() decides this once it is done
+            closeAfterWrite = !response.getStream().isKeepAlive();
+        }
+        accessLog.log(remoteAddress, request, response.getStatusCode(), bodyBytes, System.nanoTime() - requestStart);
+    }
+
+    /* Queues the response and returns the length of the body queued with it. */
+    private long respond(HttpResponse response, boolean keepAlive, boolean withBody) {
+        response.getHeaders().put("Connection", keepAlive ? "keep-alive" : "close");
+        withBody = withBody && response.isBodyAllowed();
+        List<ByteBuffer> bodyBuffers = response.getBodyBuffers();
+        List<FileRegion> bodyRegions = response.getBodyRegions();
+        if (bodyRegions != null && !withBody) {
+            for (FileRegion region : bodyRegions) {
+                if (region != null)
+                    region.close();
+            }
+        }
+        long bodyBytes = withBody ? response.getBodyLength() : 0;
+        pendingWrites.add(encoder.encode(response), withBody ? bodyBuffers : null, bodyRegions);
+        closeAfterWrite = !keepAlive;
+        return bodyBytes;
+    }
+
+    /*
+     * Streamed output is written straight to the socket once the responses ahead of it are out;
+     * whatever the socket does not take is copied into the queue and sent when it drains, so the
+     * event loop never waits on a slow client.
+     */
+    private void writeStreamed(ByteBuffer... buffers) throws IOException {
+        if (!pendingWrites.isEmpty() && pendingWrites.writeTo(channel)) {
+            encoder.reset();
+        }
+        if (pendingWrites.isEmpty()) {
+            metrics.bytesSent(channel.write(buffers));
+        }
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                copy.put(buffer).flip();
+                pendingWrites.append(copy);
+            }
+        }
+    }
+
+    /*
+     * Asks the producer for more each time the socket has taken everything queued. Returns true once
+     * the body is complete, false while it waits for the socket to drain or, after a run of pieces
+     * to a fast client, for the next write event so the loop's other connections get a turn.
+     */
+    private boolean produce() throws IOException {
+        for (int pieces = 0; flush(); pieces++) {
+            if (pieces == MAX_PIECES_PER_EVENT) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return false;
+            }
+            if (!producerStream.produce(producer)) {
+                producerStream.close();
+                closeAfterWrite = !producerStream.isKeepAlive();
+                producer.close();
+                producer = null;
+                producerStream = null;
+                decoder.next();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean flush() throws IOException {
+        long start = System.nanoTime();
+        boolean written = pendingWrites.writeTo(channel);
+        metrics.getWriteTime().record(System.nanoTime() - start);
+        if (!written) {
+            key.interestOps(SelectionKey.OP_WRITE);
+            return false;
+        }
+        encoder.reset();
+        if (closeAfterWrite) {
+            close();
+            return false;
+        }
+        // a full read buffer waits for the request a producer holds, or for the queue to take the ones decoded
+        key.interestOps(decoder.hasRoom() ? SelectionKey.OP_READ : 0);
+        return true;
+    }
+}
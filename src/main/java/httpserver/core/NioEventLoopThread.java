@@ -0,0 +1,145 @@
+package httpserver.core;
+
+import httpserver.config.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+public class NioEventLoopThread extends Thread {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioEventLoopThread.class);
+
+    private final Selector selector;
+    private final Configuration configuration;
+    private final BiConsumer<HttpRequest, HttpResponse> process;
+    private final AdmissionControl admission;
+    /* only touched by this thread, so its lock is never contended */
+    private final TimerWheel timer = new TimerWheel(TimerWheel.DEFAULT_TICK_NANOS, TimerWheel.DEFAULT_WHEEL_SIZE, System.nanoTime());
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    NioEventLoopThread(String name, Configuration configuration, BiConsumer<HttpRequest, HttpResponse> process,
+                       AdmissionControl admission) throws IOException {
+        super(name);
+        this.selector = Selector.open();
+        this.configuration = configuration;
+        this.process = process;
+        this.admission = admission;
+    }
+
+    void register(SocketChannel channel) {
+        pendingChannels.add(channel);
+        selector.wakeup();
+        // a loop that already stopped would never pick the channel up
+        if (!running)
+            closePendingChannels();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                awaitEvents();
+                registerPendingChannels();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    } catch (IOException e) {
+                        LOGGER.debug("Problem with communication", e);
+                        connection.close();
+                    } catch (RuntimeException e) {
+                        // one broken connection must not take down the others on this loop
+                        LOGGER.error("Problem with processing connection", e);
+                        connection.close();
+                    }
+                }
+                timer.advance(System.nanoTime());
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LOGGER.error("Event loop failed", e);
+        } finally {
+            running = false;
+            closeAll();
+        }
+    }
+
+    private void registerPendingChannels() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new NioConnection(channel, key, configuration, process, admission, timer));
+            } catch (IOException e) {
+                LOGGER.error("Problem with registering connection", e);
+                admission.release();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /* Selects until the next timer tick is due, or indefinitely while no timeouts are pending. */
+    private void awaitEvents() throws IOException {
+        if (timer.size() == 0) {
+            selector.select();
+            return;
+        }
+        long wait = timer.nanosToNextTick(System.nanoTime());
+        if (wait <= 0) {
+            selector.selectNow();
+        } else {
+            selector.select(TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection) {
+                ((NioConnection) key.attachment()).close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+        closePendingChannels();
+    }
+
+    private void closePendingChannels() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            admission.release();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
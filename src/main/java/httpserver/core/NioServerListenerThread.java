@@ -0,0 +1,68 @@
+package httpserver.core;
+
+import httpserver.metrics.ServerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+public class NioServerListenerThread extends Thread {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioServerListenerThread.class);
+
+    private final ServerSocketChannel serverChannel;
+    private final NioEventLoopThread[] eventLoops;
+    private final boolean ownsEventLoops;
+    private final AdmissionControl admission;
+    private int next;
+
+    /*
+     * An acceptor on an already bound socket handing connections to the given event loops. Loops
+     * shared with other acceptors are started and stopped by the caller, not by this thread.
+     */
+    NioServerListenerThread(String name, ServerSocketChannel serverChannel, NioEventLoopThread[] eventLoops,
+                            boolean ownsEventLoops, AdmissionControl admission) {
+        super(name);
+        this.serverChannel = serverChannel;
+        this.eventLoops = eventLoops;
+        this.ownsEventLoops = ownsEventLoops;
+        this.admission = admission;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (ownsEventLoops) {
+                for (NioEventLoopThread eventLoop : eventLoops) {
+                    eventLoop.start();
+                }
+            }
+            LOGGER.info("Server Started with {} event loops", eventLoops.length);
+            while (serverChannel.isOpen()) {
+                SocketChannel channel = serverChannel.accept();
+                ServerMetrics.get().connectionAccepted();
+                if (!admission.tryAdmit()) {
+                    ServerMetrics.get().connectionRejected();
+                    admission.reject(channel.socket());
+                    continue;
+                }
+                eventLoops[next].register(channel);
+                next = (next + 1) % eventLoops.length;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Problem with setting sockets", e);
+        } finally {
+            if (ownsEventLoops) {
+                for (NioEventLoopThread eventLoop : eventLoops) {
+                    eventLoop.shutdown();
+                }
+            }
+            try {
+                serverChannel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpStatusCode;
+import httpserver.http.enums.HttpVersion;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/*
+ * Encodes response heads straight into bytes. Status lines and common header names are encoded once
+ * up front; everything else is written char by char, so a head costs no intermediate strings. Each
+ * connection owns an encoder whose buffer holds the heads of its queued responses; it is taken from
+ * a pool of direct buffers, so the socket write needs no copy, and handed back once the heads have all
+ * been sent. Bodies are never copied: the head goes out beside them in one gathering write.
+ */
+class ResponseEncoder {
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] CONTENT_LENGTH = "Content-Length: ".getBytes(US_ASCII);
+
+    private static final byte[][][] STATUS_LINES = new byte[HttpVersion.values().length][HttpStatusCode.values().length][];
+    private static final Map<String, byte[]> HEADER_NAMES = new HashMap<>();
+
+    static {
+        for (HttpVersion version : HttpVersion.values()) {
+            for (HttpStatusCode status : HttpStatusCode.values()) {
+                String line = version.getVersion() + " " + status.getSTATUS_CODE() + " " + status.getMESSAGE() + "\r\n";
+                STATUS_LINES[version.ordinal()][status.ordinal()] = line.getBytes(US_ASCII);
+            }
+        }
+        String[] names = {"Accept-Ranges", "Allow", "Cache-Control", "Connection", "Content-Encoding",
+                "Content-Length", "Content-Range", "Content-Type", "Date", "ETag", "Last-Modified",
+                "Location", "Retry-After", "Server", "Transfer-Encoding", "Vary"};
+        for (String name : names) {
+            HEADER_NAMES.put(name, (name + ": ").getBytes(US_ASCII));
+        }
+    }
+
+    private final BufferPool pool;
+    private ByteBuffer buffer;
+    /* buffers outgrown while heads in them were still queued */
+    private List<ByteBuffer> retired;
+
+    ResponseEncoder() {
+        this(BufferPool.unpooled(false));
+    }
+
+    ResponseEncoder(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /* The returned head stays valid until reset is called. */
+    ByteBuffer encode(HttpResponse response) {
+        int length = headLength(response);
+        if (buffer == null) {
+            buffer = pool.acquire(Math.max(INITIAL_BUFFER_SIZE, length));
+        } else if (buffer.remaining() < length) {
+            if (retired == null)
+                retired = new ArrayList<>(2);
+            retired.add(buffer);
+            buffer = pool.acquire(Math.max(buffer.capacity(), length));
+        }
+        int start = buffer.position();
+        encodeHead(response, buffer);
+        ByteBuffer head = buffer.duplicate();
+        head.position(start);
+        head.limit(buffer.position());
+        return head.slice();
+    }
+
+    /* Called once every head handed out so far has been written or discarded. */
+    void reset() {
+        if (retired != null) {
+            for (ByteBuffer old : retired)
+                pool.release(old);
+            retired.clear();
+        }
+        if (buffer != null && pool.isUnpooled()) {
+            buffer.clear();
+            return;
+        }
+        pool.release(buffer);
+        buffer = null;
+    }
+
+    /* Encodes into a buffer of its own, for heads that are not queued with a connection's responses. */
+    static ByteBuffer encodeUnpooled(HttpResponse response) {
+        ByteBuffer head = ByteBuffer.allocate(headLength(response));
+        encodeHead(response, head);
+        head.flip();
+        return head;
+    }
+
+    static int headLength(HttpResponse response) {
+        int length = statusLine(response).length;
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            byte[] name = HEADER_NAMES.get(header.getKey());
+            length += (name != null ? name.length : header.getKey().length() + 2) + header.getValue().length() + 2;
+        }
+        long contentLength = impliedContentLength(response);
+        if (contentLength >= 0)
+            length += CONTENT_LENGTH.length + digits(contentLength) + 2;
+        return length + 2;
+    }
+
+    static void encodeHead(HttpResponse response, ByteBuffer target) {
+        target.put(statusLine(response));
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            byte[] name = HEADER_NAMES.get(header.getKey());
+            if (name != null) {
+                target.put(name);
+            } else {
+                putAscii(target, header.getKey());
+                target.put((byte) ':').put((byte) ' ');
+            }
+            putAscii(target, header.getValue());
+            target.put(CRLF);
+        }
+        long contentLength = impliedContentLength(response);
+        if (contentLength >= 0) {
+            target.put(CONTENT_LENGTH);
+            putDecimal(target, contentLength);
+            target.put(CRLF);
+        }
+        target.put(CRLF);
+    }
+
+    private static byte[] statusLine(HttpResponse response) {
+        return STATUS_LINES[response.getHttpVersion().ordinal()][response.getStatusCode().ordinal()];
+    }
+
+    /* The Content-Length to add when the handler did not set one, or -1 when none is sent. */
+    private static long impliedContentLength(HttpResponse response) {
+        if (!response.isBodyAllowed() || response.getStream() != null || response.getHeaders().containsKey("Content-Length"))
+            return -1;
+        return response.getBodyLength();
+    }
+
+    private static void putAscii(ByteBuffer target, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            target.put(c < 0x80 ? (byte) c : (byte) '?');
+        }
+    }
+
+    private static void putDecimal(ByteBuffer target, long value) {
+        int end = target.position() + digits(value);
+        for (int i = end - 1; i >= target.position(); i--) {
+            target.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        target.position(end);
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
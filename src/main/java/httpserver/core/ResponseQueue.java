@@ -0,0 +1,147 @@
+package httpserver.core;
+
+import httpserver.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * In-order queue of encoded responses for one connection. Each response is a sequence of slots, a
+ * buffer optionally followed by a file region; consecutive buffers are written with one gathering
+ * write and file regions are sent with transferTo.
+ */
+class ResponseQueue {
+
+    private final int capacity;
+    private ByteBuffer[] buffers;
+    private FileRegion[] regions;
+    private boolean[] lastSlots;
+    private int size;
+    private int responses;
+
+    ResponseQueue(int capacity) {
+        this.capacity = capacity;
+        this.buffers = new ByteBuffer[capacity * 2];
+        this.regions = new FileRegion[capacity * 2];
+        this.lastSlots = new boolean[capacity * 2];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isFull() {
+        return responses == capacity;
+    }
+
+    void add(ByteBuffer head, List<ByteBuffer> bodyBuffers, List<FileRegion> bodyRegions) {
+        if (isFull()) {
+            throw new IllegalStateException("Response queue is full");
+        }
+        int slots = 1 + (bodyBuffers == null ? 0 : bodyBuffers.size());
+        if (size + slots > buffers.length) {
+            int length = Math.max(buffers.length * 2, size + slots);
+            buffers = Arrays.copyOf(buffers, length);
+            regions = Arrays.copyOf(regions, length);
+            lastSlots = Arrays.copyOf(lastSlots, length);
+        }
+        buffers[size] = head;
+        regions[size] = null;
+        lastSlots[size] = false;
+        size++;
+        for (int i = 1; i < slots; i++) {
+            buffers[size] = bodyBuffers.get(i - 1);
+            regions[size] = bodyRegions.get(i - 1);
+            lastSlots[size] = false;
+            size++;
+        }
+        lastSlots[size - 1] = true;
+        responses++;
+    }
+
+    /* Adds a buffer to the end of the last response queued, such as the next piece of a streamed body. */
+    void append(ByteBuffer buffer) {
+        if (size == 0) {
+            add(buffer, null, null);
+            return;
+        }
+        if (size == buffers.length) {
+            buffers = Arrays.copyOf(buffers, size * 2);
+            regions = Arrays.copyOf(regions, size * 2);
+            lastSlots = Arrays.copyOf(lastSlots, size * 2);
+        }
+        lastSlots[size - 1] = false;
+        buffers[size] = buffer;
+        regions[size] = null;
+        lastSlots[size] = true;
+        size++;
+    }
+
+    boolean writeTo(GatheringByteChannel channel) throws IOException {
+        return writeTo(channel, null);
+    }
+
+    /* onProgress, when given, runs after every write that moved some bytes. */
+    boolean writeTo(GatheringByteChannel channel, Runnable onProgress) throws IOException {
+        while (size > 0) {
+            int gather = 0;
+            while (gather < size - 1 && regions[gather] == null) {
+                gather++;
+            }
+            long written = channel.write(buffers, 0, gather + 1);
+            FileRegion region = regions[gather];
+            if (region != null && !buffers[gather].hasRemaining() && region.hasRemaining()) {
+                written += region.transferTo(channel);
+            }
+            ServerMetrics.get().bytesSent(written);
+            if (onProgress != null && written > 0) {
+                onProgress.run();
+            }
+            removeCompleted();
+            if (written == 0 && size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            if (regions[i] != null) {
+                regions[i].close();
+            }
+            buffers[i] = null;
+            regions[i] = null;
+        }
+        size = 0;
+        responses = 0;
+    }
+
+    private void removeCompleted() {
+        int completed = 0;
+        while (completed < size && !buffers[completed].hasRemaining()
+                && (regions[completed] == null || !regions[completed].hasRemaining())) {
+            if (regions[completed] != null) {
+                regions[completed].close();
+            }
+            if (lastSlots[completed]) {
+                responses--;
+            }
+            completed++;
+        }
+        if (completed == 0) {
+            return;
+        }
+        System.arraycopy(buffers, completed, buffers, 0, size - completed);
+        System.arraycopy(regions, completed, regions, 0, size - completed);
+        System.arraycopy(lastSlots, completed, lastSlots, 0, size - completed);
+        for (int i = size - completed; i < size; i++) {
+            buffers[i] = null;
+            regions[i] = null;
+        }
+        size -= completed;
+    }
+}
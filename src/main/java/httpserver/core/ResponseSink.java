@@ -0,0 +1,12 @@
+package httpserver.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/* Where a streamed response goes; write returns once the engine has taken the bytes. */
+interface ResponseSink {
+
+    void write(ByteBuffer... buffers) throws IOException;
+
+    void flush() throws IOException;
+}
@@ -0,0 +1,37 @@
+package httpserver.core;
+
+import java.io.IOException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+
+/*
+ * StandardSocketOptions.SO_REUSEPORT arrived in Java 9, so the Java 8 baseline looks it up by
+ * reflection; it is null on Java 8. Whether a channel accepts it still depends on the platform.
+ */
+final class ReusePort {
+
+    private static final SocketOption<Boolean> SO_REUSEPORT = lookup();
+
+    private ReusePort() {
+    }
+
+    static boolean isSupported(ServerSocketChannel channel) {
+        return SO_REUSEPORT != null && channel.supportedOptions().contains(SO_REUSEPORT);
+    }
+
+    static void enable(ServerSocketChannel channel) throws IOException {
+        if (SO_REUSEPORT == null)
+            throw new UnsupportedOperationException("SO_REUSEPORT requires Java 9 or newer");
+        channel.setOption(SO_REUSEPORT, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> lookup() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -1,24 +1,28 @@
 package httpserver.core;
 
+import httpserver.metrics.ServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 
 public class ServerListenerThread extends Thread {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerListenerThread.class);
 
-    private int port;
-    private String webroot;
     private ServerSocket serverSocket;
-
-    public ServerListenerThread(int port, String webroot) throws IOException {
-        this.port = port;
-        this.webroot = webroot;
-        this.serverSocket = new ServerSocket(this.port);
+    private final ConnectionDispatcher dispatcher;
+    private final boolean ownsDispatcher;
+
+    /* An acceptor on an already bound socket; a dispatcher shared with other acceptors is left running when this one stops. */
+    ServerListenerThread(String name, ServerSocketChannel serverChannel, ConnectionDispatcher dispatcher, boolean ownsDispatcher) {
+        super(name);
+        this.serverSocket = serverChannel.socket();
+        this.dispatcher = dispatcher;
+        this.ownsDispatcher = ownsDispatcher;
     }
 
     @Override
@@ -27,22 +31,16 @@ public class ServerListenerThread extends Thread {
             LOGGER.info("Server Started");
             while (serverSocket.isBound() && !serverSocket.isClosed()) {
                 Socket socket = serverSocket.accept();
-                LOGGER.info("Connection Accepted: " + socket.getInetAddress().getHostName() + ":" + port);
-
-                HttpConnectionWorkerThread httpConnectionWorkerThread = new HttpConnectionWorkerThread(socket, (request, response) -> {
-                    String html = "<html>\n" +
-                            "    <head>\n" +
-                            "        <body>Simple Http Server</body>\n" +
-                            "    </head>\n" +
-                            "</html>";
-                    response.setMessage(html);
-                });
-                httpConnectionWorkerThread.start();
+                ServerMetrics.get().connectionAccepted();
+                LOGGER.debug("Connection accepted from {}", socket.getInetAddress());
+                dispatcher.dispatch(socket);
             }
             serverSocket.close();
         } catch (IOException e) {
             LOGGER.error("Problem with setting sockets", e);
         } finally {
+            if (ownsDispatcher)
+                dispatcher.shutdown();
             try {
                 serverSocket.close();
             } catch (IOException ignored) {
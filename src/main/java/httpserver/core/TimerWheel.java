@@ -0,0 +1,163 @@
+package httpserver.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Hashed timing wheel for connection timeouts. A timeout goes into one of a power-of-two number of
+ * buckets by its deadline tick and sits in that bucket's intrusive doubly-linked list, so scheduling
+ * and cancelling are O(1) and each connection reuses one Timeout for all of its phases. Every tick
+ * expires one bucket; deadlines more than a turn of the wheel away wait out their remaining rounds.
+ * A timeout fires up to one tick late, never early.
+ *
+ * Any thread may schedule and cancel. Tasks run on the thread that advances the wheel, outside its
+ * lock, and must not block.
+ */
+class TimerWheel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static TimerWheel shared;
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startNanos;
+    /* the next tick to expire */
+    private long tick;
+    private int size;
+
+    TimerWheel(long tickNanos, int wheelSize, long now) {
+        this.tickNanos = tickNanos;
+        int buckets = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.buckets = new Timeout[buckets];
+        this.mask = buckets - 1;
+        this.startNanos = now;
+    }
+
+    /* A wheel advanced by its own daemon thread, for connections that block in socket calls. */
+    static synchronized TimerWheel shared() {
+        if (shared == null) {
+            TimerWheel wheel = new TimerWheel(DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE, System.nanoTime());
+            Thread ticker = new Thread(() -> {
+                while (true) {
+                    long wait = wheel.nanosToNextTick(System.nanoTime());
+                    if (wait > 0)
+                        LockSupport.parkNanos(wait);
+                    else
+                        wheel.advance(System.nanoTime());
+                }
+            }, "http-timer");
+            ticker.setDaemon(true);
+            ticker.start();
+            shared = wheel;
+        }
+        return shared;
+    }
+
+    Timeout newTimeout(Runnable task) {
+        return new Timeout(task);
+    }
+
+    void schedule(Timeout timeout, long delayNanos) {
+        schedule(timeout, delayNanos, System.nanoTime());
+    }
+
+    /* Schedules the timeout delayNanos after now, replacing any deadline it already had. */
+    synchronized void schedule(Timeout timeout, long delayNanos, long now) {
+        if (timeout.bucket >= 0)
+            unlink(timeout);
+        long elapsed = now + Math.max(0, delayNanos) - startNanos;
+        long deadline = Math.max(tick, (elapsed + tickNanos - 1) / tickNanos);
+        timeout.rounds = (deadline - tick) / buckets.length;
+        timeout.bucket = (int) (deadline & mask);
+        timeout.prev = null;
+        timeout.next = buckets[timeout.bucket];
+        if (timeout.next != null)
+            timeout.next.prev = timeout;
+        buckets[timeout.bucket] = timeout;
+        size++;
+    }
+
+    synchronized void cancel(Timeout timeout) {
+        if (timeout.bucket >= 0)
+            unlink(timeout);
+    }
+
+    /* Expires every tick up to now and runs the tasks of the timeouts that fell due. */
+    void advance(long now) {
+        List<Timeout> expired = null;
+        synchronized (this) {
+            long target = (now - startNanos) / tickNanos;
+            if (size == 0 && tick <= target)
+                tick = target + 1;
+            for (; tick <= target; tick++) {
+                Timeout timeout = buckets[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.rounds <= 0) {
+                        unlink(timeout);
+                        if (expired == null)
+                            expired = new ArrayList<>();
+                        expired.add(timeout);
+                    } else {
+                        timeout.rounds--;
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        if (expired == null)
+            return;
+        for (Timeout timeout : expired) {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Timeout task failed", e);
+            }
+        }
+    }
+
+    /* How long after now the next tick is due; 0 or less when it is already due. */
+    synchronized long nanosToNextTick(long now) {
+        return startNanos + tick * tickNanos - now;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null)
+            timeout.prev.next = timeout.next;
+        else
+            buckets[timeout.bucket] = timeout.next;
+        if (timeout.next != null)
+            timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    static final class Timeout {
+
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+        private int bucket = -1;
+        private long rounds;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package httpserver.core;
+
+import java.util.concurrent.ExecutorService;
+
+/*
+ * Java 8 baseline. The multi-release jar carries a Java 21 variant of this class
+ * under META-INF/versions/21 that actually creates virtual threads.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return false;
+    }
+
+    static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+}
@@ -0,0 +1,78 @@
+package httpserver.handler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/* Parses a Range header of the "bytes" unit against a representation of known length. */
+class ByteRanges {
+
+    static final int MAX_RANGES = 16;
+
+    /*
+     * Returns the satisfiable ranges as inclusive {first, last} pairs, sorted with overlapping and
+     * adjacent ranges merged. Returns null when the header should be ignored and the full body sent,
+     * and an empty list when no range is satisfiable.
+     */
+    static List<long[]> parse(String range, long length) {
+        if (range == null)
+            return null;
+        range = range.trim();
+        if (!range.regionMatches(true, 0, "bytes=", 0, 6))
+            return null;
+        String[] specs = range.substring(6).split(",");
+        if (specs.length > MAX_RANGES)
+            return null;
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0)
+                return null;
+            long first;
+            long last;
+            try {
+                if (dash == 0) {
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0)
+                        return null;
+                    if (suffix == 0 || length == 0)
+                        continue;
+                    first = Math.max(0, length - suffix);
+                    last = length - 1;
+                } else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                    if (first < 0 || last < first)
+                        return null;
+                    if (first >= length)
+                        continue;
+                    last = Math.min(last, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            ranges.add(new long[]{first, last});
+        }
+        return merge(ranges);
+    }
+
+    private static List<long[]> merge(List<long[]> ranges) {
+        if (ranges.size() < 2)
+            return ranges;
+        ranges.sort(Comparator.comparingLong(r -> r[0]));
+        List<long[]> merged = new ArrayList<>(ranges.size());
+        long[] current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            long[] next = ranges.get(i);
+            if (next[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], next[1]);
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
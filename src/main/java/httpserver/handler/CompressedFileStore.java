@@ -0,0 +1,144 @@
+package httpserver.handler;
+
+import httpserver.config.HttpConfigurationException;
+import httpserver.http.enums.ContentCoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Encodings of files too large for the asset cache, compressed once into a directory and served from
+ * there like a precompressed sibling. A variant is named after the file and its size and modification
+ * time, so a changed file is never served a stale one. Variants are built by a background thread: the
+ * request that finds none is answered with identity rather than waiting, and later ones get the
+ * variant once it is written.
+ */
+public class CompressedFileStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressedFileStore.class);
+
+    private static final int MAX_PENDING_BUILDS = 64;
+
+    private final Path directory;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor builder;
+
+    public CompressedFileStore(String directory) {
+        try {
+            this.directory = directory == null || directory.isEmpty()
+                    ? Files.createTempDirectory("http-server-compressed")
+                    : Files.createDirectories(Paths.get(directory)).toRealPath();
+        } catch (IOException e) {
+            throw new HttpConfigurationException("Compressed file directory is not accessible: " + directory, e);
+        }
+        // builds that do not fit the queue are refused; the file is simply asked for again on a later hit
+        this.builder = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING_BUILDS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "compressed-file-builder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /*
+     * Returns the variant of this version of the file in the coding, or null when it is not built yet,
+     * in which case a build is started, or when the encoding turned out no smaller than the file.
+     */
+    Path get(Path file, BasicFileAttributes attributes, ContentCoding coding) {
+        String name = variantName(file, attributes.size(), attributes.lastModifiedTime().toMillis(), coding);
+        Path variant = directory.resolve(name);
+        try {
+            if (Files.isRegularFile(variant))
+                return Files.size(variant) < attributes.size() ? variant : null;
+        } catch (IOException e) {
+            return null;
+        }
+        if (pending.add(name)) {
+            try {
+                builder.execute(() -> build(file, attributes, coding, variant));
+            } catch (RejectedExecutionException e) {
+                pending.remove(name);
+            }
+        }
+        return null;
+    }
+
+    private void build(Path file, BasicFileAttributes attributes, ContentCoding coding, Path variant) {
+        Path partial = null;
+        try {
+            removeOtherVersions(file, coding, variant);
+            partial = Files.createTempFile(directory, variant.getFileName().toString(), ".partial");
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = Compression.compressing(coding, Files.newOutputStream(partial))) {
+                byte[] piece = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(piece)) >= 0)
+                    out.write(piece, 0, read);
+            }
+            // a file that changed while it was read is left for a later request to build again
+            BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+            if (after.size() == attributes.size() && after.lastModifiedTime().equals(attributes.lastModifiedTime()))
+                Files.move(partial, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to compress {}", file, e);
+        } finally {
+            pending.remove(variant.getFileName().toString());
+            if (partial != null) {
+                try {
+                    Files.deleteIfExists(partial);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void removeOtherVersions(Path file, ContentCoding coding, Path variant) throws IOException {
+        String prefix = fileKey(file) + "-";
+        String suffix = "." + coding.getCoding();
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path old : variants) {
+                if (!old.equals(variant))
+                    Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    static String variantName(Path file, long size, long lastModified, ContentCoding coding) {
+        return fileKey(file) + "-" + Long.toHexString(lastModified) + "-" + Long.toHexString(size) + "." + coding.getCoding();
+    }
+
+    private static String fileKey(Path file) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(file.toString().getBytes(UTF_8));
+            StringBuilder key = new StringBuilder(32);
+            for (int i = 0; i < 16; i++)
+                key.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package httpserver.handler;
+
+import httpserver.http.enums.ContentCoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/* Which responses are worth compressing, and Accept-Encoding negotiation between gzip and deflate. */
+public class Compression {
+
+    private final int minSize;
+    private final Set<String> mimeTypes = new HashSet<>();
+
+    public Compression(int minSize, String[] mimeTypes) {
+        this.minSize = minSize;
+        for (String mimeType : mimeTypes) {
+            this.mimeTypes.add(mimeType.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public boolean isCompressible(String contentType, long size) {
+        if (contentType == null || size < minSize)
+            return false;
+        int parameters = contentType.indexOf(';');
+        String mimeType = parameters < 0 ? contentType : contentType.substring(0, parameters);
+        return mimeTypes.contains(mimeType.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /* Returns the acceptable coding with the highest qvalue, preferring gzip on ties, or null for identity. */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return null;
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for (String element : acceptEncoding.split(",")) {
+            int parameters = element.indexOf(';');
+            String coding = (parameters < 0 ? element : element.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+            float quality = parameters < 0 ? 1 : parseQuality(element.substring(parameters + 1));
+            if (quality < 0)
+                continue;
+            if (coding.equals("gzip") || coding.equals("x-gzip"))
+                gzip = quality;
+            else if (coding.equals("deflate"))
+                deflate = quality;
+            else if (coding.equals("*"))
+                any = quality;
+        }
+        if (gzip < 0)
+            gzip = any;
+        if (deflate < 0)
+            deflate = any;
+        if (gzip > 0 && gzip >= deflate)
+            return ContentCoding.GZIP;
+        if (deflate > 0)
+            return ContentCoding.DEFLATE;
+        return null;
+    }
+
+    public static byte[] compress(ContentCoding coding, byte[] data, int offset, int length) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, length / 2));
+        try (OutputStream out = compressing(coding, compressed)) {
+            out.write(data, offset, length);
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory compression failed", e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /* Closing the returned stream finishes the encoding and closes out. */
+    static OutputStream compressing(ContentCoding coding, OutputStream out) throws IOException {
+        return coding == ContentCoding.GZIP ? new GZIPOutputStream(out) : new DeflaterOutputStream(out);
+    }
+
+    static void addVary(Map<String, String> headers) {
+        String vary = headers.get("Vary");
+        if (vary == null)
+            headers.put("Vary", "Accept-Encoding");
+        else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding"))
+            headers.put("Vary", vary + ", Accept-Encoding");
+    }
+
+    private static float parseQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q') && parameter.charAt(1) == '=') {
+                try {
+                    float quality = Float.parseFloat(parameter.substring(2));
+                    return quality >= 0 && quality <= 1 ? quality : -1;
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return 1;
+    }
+}
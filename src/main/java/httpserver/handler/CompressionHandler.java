@@ -0,0 +1,43 @@
+package httpserver.handler;
+
+import httpserver.core.HttpHeaders;
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpResponse;
+import httpserver.http.enums.ContentCoding;
+
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/* Compresses in-memory message bodies produced by the wrapped handler. File and buffer bodies pass through. */
+public class CompressionHandler implements BiConsumer<HttpRequest, HttpResponse> {
+
+    private final BiConsumer<HttpRequest, HttpResponse> delegate;
+    private final Compression compression;
+
+    public CompressionHandler(BiConsumer<HttpRequest, HttpResponse> delegate, Compression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public void accept(HttpRequest request, HttpResponse response) {
+        delegate.accept(request, response);
+        String message = response.getMessage();
+        if (message == null || response.getHeaders().containsKey("Content-Encoding"))
+            return;
+        byte[] body = message.getBytes(UTF_8);
+        if (!compression.isCompressible(response.getHeaders().get("Content-Type"), body.length))
+            return;
+        Compression.addVary(response.getHeaders());
+        ContentCoding coding = Compression.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (coding == null)
+            return;
+        byte[] compressed = Compression.compress(coding, body, 0, body.length);
+        if (compressed.length >= body.length)
+            return;
+        response.setBody(ByteBuffer.wrap(compressed));
+        response.getHeaders().put("Content-Encoding", coding.getCoding());
+    }
+}
@@ -0,0 +1,207 @@
+package httpserver.handler;
+
+import httpserver.config.HttpConfigurationException;
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpResponse;
+import httpserver.http.enums.HttpMethod;
+import httpserver.util.RequestPaths;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static httpserver.http.enums.HttpStatusCode.METHOD_NOT_ALLOWED;
+import static httpserver.http.enums.HttpStatusCode.NOT_FOUND;
+
+/*
+ * Dispatches requests by method and path. Patterns are made of literal segments, {name} segments
+ * matching one non-empty segment, and a trailing *name wildcard matching the rest of the path. Routes
+ * are compiled into a trie of path segments, so a lookup walks the path once whatever the number of
+ * routes. Literals win over parameters, which win over wildcards.
+ */
+public class Router implements BiConsumer<HttpRequest, HttpResponse> {
+
+    private static final String ANONYMOUS_WILDCARD = "*";
+
+    private final Node root = new Node();
+    private int maxParameters;
+
+    public Router add(HttpMethod method, String pattern, BiConsumer<HttpRequest, HttpResponse> handler) {
+        if (pattern == null || !pattern.startsWith("/"))
+            throw new HttpConfigurationException("Route must start with '/': " + pattern);
+        Node node = root;
+        String[] names = new String[0];
+        int start = pattern.length() == 1 ? -1 : 1;
+        while (start >= 0) {
+            int end = pattern.indexOf('/', start);
+            if (end < 0)
+                end = pattern.length();
+            String segment = pattern.substring(start, end);
+            start = end < pattern.length() ? end + 1 : -1;
+            if (segment.startsWith("*")) {
+                if (start >= 0)
+                    throw new HttpConfigurationException("Wildcard must be the last segment: " + pattern);
+                String name = segment.length() == 1 ? ANONYMOUS_WILDCARD : segment.substring(1);
+                node = node.wildcard(name, pattern);
+            } else if (segment.startsWith("{")) {
+                if (!segment.endsWith("}") || segment.length() == 2)
+                    throw new HttpConfigurationException("Malformed parameter '" + segment + "' in route: " + pattern);
+                node = node.parameter(segment.substring(1, segment.length() - 1), pattern);
+            } else {
+                node = node.literal(segment);
+                continue;
+            }
+            String[] extended = new String[names.length + 1];
+            System.arraycopy(names, 0, extended, 0, names.length);
+            extended[names.length] = node.name;
+            names = extended;
+        }
+        node.register(method, handler, names, pattern);
+        maxParameters = Math.max(maxParameters, names.length);
+        return this;
+    }
+
+    @Override
+    public void accept(HttpRequest request, HttpResponse response) {
+        String path = RequestPaths.decode(request.getRequestTarget());
+        String[] values = new String[maxParameters];
+        Node node = path == null ? null : match(path, values);
+        if (node == null) {
+            notFound(response);
+            return;
+        }
+        BiConsumer<HttpRequest, HttpResponse> handler = node.handler(request.getMethod());
+        if (handler == null) {
+            methodNotAllowed(response, node.allow);
+            return;
+        }
+        if (node.parameterNames.length > 0) {
+            Map<String, String> parameters = new HashMap<>();
+            for (int i = 0; i < node.parameterNames.length; i++)
+                parameters.put(node.parameterNames[i], values[i]);
+            request.setPathParameters(parameters);
+        }
+        handler.accept(request, response);
+    }
+
+    /* The route node for a decoded path, with its parameter values stored in order, or null. */
+    Node match(String path, String[] values) {
+        return root.match(path, path.length() == 1 ? -1 : 1, values, 0);
+    }
+
+    static final class Node {
+
+        private Map<String, Node> literals = Collections.emptyMap();
+        private Node parameter;
+        private Node wildcard;
+        private String name;
+        private final EnumMap<HttpMethod, BiConsumer<HttpRequest, HttpResponse>> handlers = new EnumMap<>(HttpMethod.class);
+        private String[] parameterNames;
+        private String allow;
+
+        private Node literal(String segment) {
+            if (literals.isEmpty())
+                literals = new HashMap<>();
+            return literals.computeIfAbsent(segment, s -> new Node());
+        }
+
+        private Node parameter(String name, String pattern) {
+            if (parameter == null) {
+                parameter = new Node();
+                parameter.name = name;
+            } else if (!parameter.name.equals(name)) {
+                throw new HttpConfigurationException("Parameter {" + name + "} conflicts with {"
+                        + parameter.name + "} in route: " + pattern);
+            }
+            return parameter;
+        }
+
+        private Node wildcard(String name, String pattern) {
+            if (wildcard == null) {
+                wildcard = new Node();
+                wildcard.name = name;
+            } else if (!wildcard.name.equals(name)) {
+                throw new HttpConfigurationException("Wildcard *" + name + " conflicts with *"
+                        + wildcard.name + " in route: " + pattern);
+            }
+            return wildcard;
+        }
+
+        private void register(HttpMethod method, BiConsumer<HttpRequest, HttpResponse> handler, String[] names, String pattern) {
+            if (handlers.containsKey(method))
+                throw new HttpConfigurationException("Duplicate route: " + method + " " + pattern);
+            handlers.put(method, handler);
+            parameterNames = names;
+            StringBuilder methods = new StringBuilder();
+            for (HttpMethod allowed : HttpMethod.values()) {
+                if (handler(allowed) == null)
+                    continue;
+                if (methods.length() > 0)
+                    methods.append(", ");
+                methods.append(allowed.name());
+            }
+            allow = methods.toString();
+        }
+
+        /* HEAD is answered by the GET handler unless it has a route of its own. */
+        BiConsumer<HttpRequest, HttpResponse> handler(HttpMethod method) {
+            BiConsumer<HttpRequest, HttpResponse> handler = handlers.get(method);
+            if (handler == null && method == HttpMethod.HEAD)
+                handler = handlers.get(HttpMethod.GET);
+            return handler;
+        }
+
+        String getAllow() {
+            return allow;
+        }
+
+        /* start is the index of the next segment in path, or -1 once every segment is consumed. */
+        private Node match(String path, int start, String[] values, int depth) {
+            if (start < 0) {
+                if (!handlers.isEmpty())
+                    return this;
+                if (wildcard != null) {
+                    values[depth] = "";
+                    return wildcard;
+                }
+                return null;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0)
+                end = path.length();
+            int next = end < path.length() ? end + 1 : -1;
+            if (!literals.isEmpty()) {
+                Node child = literals.get(path.substring(start, end));
+                Node found = child == null ? null : child.match(path, next, values, depth);
+                if (found != null)
+                    return found;
+            }
+            if (parameter != null && end > start) {
+                values[depth] = path.substring(start, end);
+                Node found = parameter.match(path, next, values, depth + 1);
+                if (found != null)
+                    return found;
+            }
+            if (wildcard != null) {
+                values[depth] = path.substring(start);
+                return wildcard;
+            }
+            return null;
+        }
+    }
+
+    private static void methodNotAllowed(HttpResponse response, String allow) {
+        response.setStatusCode(METHOD_NOT_ALLOWED);
+        response.getHeaders().put("Allow", allow);
+        response.getHeaders().put("Content-Type", "text/plain; charset=UTF-8");
+        response.setMessage(METHOD_NOT_ALLOWED.MESSAGE);
+    }
+
+    private static void notFound(HttpResponse response) {
+        response.setStatusCode(NOT_FOUND);
+        response.getHeaders().put("Content-Type", "text/plain; charset=UTF-8");
+        response.setMessage(NOT_FOUND.MESSAGE);
+    }
+}
@@ -0,0 +1,204 @@
+package httpserver.handler;
+
+import httpserver.http.enums.ContentCoding;
+import httpserver.util.HttpDates;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * LRU cache of small static files held in memory, bounded by the total bytes of the cached bodies.
+ * An entry is only served while the file's size and modification time still match what was read.
+ * Compressible files also keep their gzip and deflate encodings, built once when the file is loaded.
+ */
+public class StaticAssetCache {
+
+    private final long maxSize;
+    private final long maxFileSize;
+    private final boolean offHeap;
+    private final Compression compression;
+    private final LinkedHashMap<Path, Asset> assets = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long size;
+
+    public StaticAssetCache(long maxSize, long maxFileSize, boolean offHeap) {
+        this(maxSize, maxFileSize, offHeap, null);
+    }
+
+    public StaticAssetCache(long maxSize, long maxFileSize, boolean offHeap, Compression compression) {
+        this.maxSize = maxSize;
+        this.maxFileSize = Math.min(Math.min(maxFileSize, maxSize), Integer.MAX_VALUE);
+        this.offHeap = offHeap;
+        this.compression = compression;
+    }
+
+    /*
+     * Returns the cached asset for the file, loading it on a miss. Returns null when the file is too
+     * large to cache or changes while it is read, in which case it should be served from disk.
+     */
+    Asset get(Path file, BasicFileAttributes attributes, String contentType) throws IOException {
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        synchronized (this) {
+            Asset asset = assets.get(file);
+            if (asset != null && asset.isFresh(attributes.size(), lastModified)) {
+                hits.incrementAndGet();
+                return asset;
+            }
+            if (asset != null)
+                remove(file);
+        }
+        misses.incrementAndGet();
+        if (attributes.size() > maxFileSize)
+            return null;
+        Asset asset = load(file, attributes.size(), lastModified, contentType);
+        if (asset != null)
+            put(file, asset);
+        return asset;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntries() {
+        return assets.size();
+    }
+
+    private Asset load(Path file, long fileSize, long lastModified, String contentType) throws IOException {
+        ByteBuffer body = allocate((int) fileSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (body.hasRemaining()) {
+                if (channel.read(body) < 0)
+                    return null;
+            }
+            if (channel.size() != fileSize)
+                return null;
+        }
+        BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+        if (after.size() != fileSize || after.lastModifiedTime().toMillis() != lastModified)
+            return null;
+        body.flip();
+        Asset asset = new Asset(body, contentType, fileSize, lastModified);
+        if (compression != null && compression.isCompressible(contentType, fileSize))
+            encode(asset);
+        return asset;
+    }
+
+    private void encode(Asset asset) {
+        byte[] data = new byte[(int) asset.fileSize];
+        asset.body.duplicate().get(data);
+        for (ContentCoding coding : ContentCoding.values()) {
+            byte[] encoded = Compression.compress(coding, data, 0, data.length);
+            if (encoded.length >= data.length)
+                continue;
+            ByteBuffer encodedBody = allocate(encoded.length);
+            encodedBody.put(encoded).flip();
+            asset.encodedBodies[coding.ordinal()] = encodedBody;
+            asset.weight += encoded.length;
+        }
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private synchronized void put(Path file, Asset asset) {
+        remove(file);
+        assets.put(file, asset);
+        size += asset.weight;
+        Iterator<Map.Entry<Path, Asset>> eldest = assets.entrySet().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            size -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Path file) {
+        Asset removed = assets.remove(file);
+        if (removed != null)
+            size -= removed.weight;
+    }
+
+    static final class Asset {
+
+        private final ByteBuffer body;
+        private final ByteBuffer[] encodedBodies = new ByteBuffer[ContentCoding.values().length];
+        private final String[] encodedEntityTags = new String[ContentCoding.values().length];
+        private final String contentType;
+        private final long fileSize;
+        private final long lastModified;
+        private final String entityTag;
+        private final String lastModifiedDate;
+        private long weight;
+
+        private Asset(ByteBuffer body, String contentType, long fileSize, long lastModified) {
+            this.body = body;
+            this.contentType = contentType;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.entityTag = StaticFileHandler.entityTag(fileSize, lastModified, null);
+            this.lastModifiedDate = HttpDates.format(lastModified);
+            this.weight = fileSize;
+            for (ContentCoding coding : ContentCoding.values()) {
+                encodedEntityTags[coding.ordinal()] = StaticFileHandler.entityTag(fileSize, lastModified, coding);
+            }
+        }
+
+        ByteBuffer getBody() {
+            return body;
+        }
+
+        /* Returns null when the file is not compressible or the encoding would not be smaller. */
+        ByteBuffer getBody(ContentCoding coding) {
+            return encodedBodies[coding.ordinal()];
+        }
+
+        String getEntityTag(ContentCoding coding) {
+            return encodedEntityTags[coding.ordinal()];
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        String getEntityTag() {
+            return entityTag;
+        }
+
+        String getLastModifiedDate() {
+            return lastModifiedDate;
+        }
+
+        boolean isFresh(long fileSize, long lastModified) {
+            return this.fileSize == fileSize && this.lastModified == lastModified;
+        }
+    }
+}
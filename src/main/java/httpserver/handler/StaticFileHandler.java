@@ -0,0 +1,299 @@
+package httpserver.handler;
+
+import httpserver.config.HttpConfigurationException;
+import httpserver.core.HttpHeaders;
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpResponse;
+import httpserver.http.enums.ContentCoding;
+import httpserver.http.enums.HttpMethod;
+import httpserver.util.HttpDates;
+import httpserver.util.MimeTypes;
+import httpserver.util.RequestPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+import static httpserver.http.enums.HttpStatusCode.METHOD_NOT_ALLOWED;
+import static httpserver.http.enums.HttpStatusCode.NOT_FOUND;
+import static httpserver.http.enums.HttpStatusCode.NOT_MODIFIED;
+import static httpserver.http.enums.HttpStatusCode.PARTIAL_CONTENT;
+import static httpserver.http.enums.HttpStatusCode.RANGE_NOT_SATISFIABLE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+public class StaticFileHandler implements BiConsumer<HttpRequest, HttpResponse> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticFileHandler.class);
+
+    private static final String INDEX_FILE = "index.html";
+
+    private final Path webroot;
+    private final StaticAssetCache cache;
+    private final Compression compression;
+    private final CompressedFileStore compressedFiles;
+
+    public StaticFileHandler(String webroot) {
+        this(webroot, null, null);
+    }
+
+    public StaticFileHandler(String webroot, StaticAssetCache cache, Compression compression) {
+        this(webroot, cache, compression, null);
+    }
+
+    public StaticFileHandler(String webroot, StaticAssetCache cache, Compression compression, CompressedFileStore compressedFiles) {
+        this.cache = cache;
+        this.compression = compression;
+        this.compressedFiles = compressedFiles;
+        try {
+            this.webroot = Paths.get(webroot).toRealPath();
+        } catch (IOException | InvalidPathException e) {
+            throw new HttpConfigurationException("Webroot is not accessible: " + webroot, e);
+        }
+        if (!Files.isDirectory(this.webroot)) {
+            throw new HttpConfigurationException("Webroot is not a directory: " + webroot);
+        }
+    }
+
+    public StaticAssetCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void accept(HttpRequest request, HttpResponse response) {
+        if (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD) {
+            methodNotAllowed(response);
+            return;
+        }
+        Path file = resolve(request.getRequestTarget());
+        if (file == null) {
+            notFound(response);
+            return;
+        }
+        String contentType = MimeTypes.getContentType(file.getFileName().toString());
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            StaticAssetCache.Asset asset = cache == null ? null : cache.get(file, attributes, contentType);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            boolean compressible = compression != null && compression.isCompressible(contentType, attributes.size());
+            ContentCoding coding = compressible ? Compression.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) : null;
+
+            /*
+             * in order of preference: cached encoding, precompressed sibling, stored encoding of a file
+             * too large to cache, cached file, file on disk
+             */
+            ByteBuffer body = null;
+            Path source = file;
+            ContentCoding encoding = null;
+            String entityTag;
+            Path sibling = coding == ContentCoding.GZIP && (asset == null || asset.getBody(coding) == null)
+                    ? gzipSibling(file, lastModified) : null;
+            Path stored = coding != null && asset == null && sibling == null && compressedFiles != null
+                    ? compressedFiles.get(file, attributes, coding) : null;
+            if (asset != null && coding != null && asset.getBody(coding) != null) {
+                body = asset.getBody(coding);
+                encoding = coding;
+                entityTag = asset.getEntityTag(coding);
+            } else if (sibling != null) {
+                source = sibling;
+                encoding = coding;
+                entityTag = entityTag(Files.size(sibling), Files.getLastModifiedTime(sibling).toMillis(), coding);
+            } else if (stored != null) {
+                source = stored;
+                encoding = coding;
+                entityTag = entityTag(attributes.size(), lastModified, coding);
+            } else if (asset != null) {
+                body = asset.getBody();
+                entityTag = asset.getEntityTag();
+            } else {
+                entityTag = entityTag(attributes.size(), lastModified, null);
+            }
+
+            response.getHeaders().put("ETag", entityTag);
+            response.getHeaders().put("Last-Modified", asset != null ? asset.getLastModifiedDate() : HttpDates.format(lastModified));
+            if (compressible)
+                Compression.addVary(response.getHeaders());
+            if (isNotModified(request, entityTag, lastModified)) {
+                response.setStatusCode(NOT_MODIFIED);
+                return;
+            }
+            response.getHeaders().put("Content-Type", contentType);
+            response.getHeaders().put("Accept-Ranges", "bytes");
+            if (encoding != null)
+                response.getHeaders().put("Content-Encoding", encoding.getCoding());
+            FileChannel channel = body == null ? FileChannel.open(source, StandardOpenOption.READ) : null;
+            long length = body != null ? body.remaining() : channel.size();
+            List<long[]> ranges = null;
+            if (request.getMethod() == HttpMethod.GET && isRangeValid(request, entityTag, lastModified))
+                ranges = ByteRanges.parse(request.getHeader(HttpHeaders.RANGE), length);
+            if (ranges == null) {
+                if (body != null)
+                    response.setBody(body);
+                else
+                    response.setBody(channel, 0, length);
+            } else if (ranges.isEmpty()) {
+                if (channel != null)
+                    channel.close();
+                rangeNotSatisfiable(response, length);
+            } else {
+                sendRanges(response, ranges, length, contentType, body, channel);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Unable to open {}", file, e);
+            notFound(response);
+        }
+    }
+
+    /*
+     * Maps the request target to a regular file under the webroot, or null. The decoded path is
+     * normalized and, after following symlinks, must still be inside the webroot.
+     */
+    Path resolve(String requestTarget) {
+        String path = RequestPaths.decode(requestTarget);
+        if (path == null)
+            return null;
+        try {
+            Path file = webroot.resolve(path.substring(1)).normalize();
+            if (!file.startsWith(webroot))
+                return null;
+            if (Files.isDirectory(file))
+                file = file.resolve(INDEX_FILE);
+            if (!Files.isRegularFile(file))
+                return null;
+            file = file.toRealPath();
+            return file.startsWith(webroot) ? file : null;
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Strong validator derived from the file version, so it changes whenever size or mtime does. Each
+     * content coding is a different representation and gets its own tag.
+     */
+    static String entityTag(long size, long lastModified, ContentCoding coding) {
+        String version = Long.toHexString(lastModified) + "-" + Long.toHexString(size);
+        return coding == null ? "\"" + version + "\"" : "\"" + version + "-" + coding.getCoding() + "\"";
+    }
+
+    /* A precompressed file.gz next to the file is used unless it is older than the file itself. */
+    private Path gzipSibling(Path file, long lastModified) {
+        Path sibling = file.resolveSibling(file.getFileName() + ".gz");
+        try {
+            if (!Files.isRegularFile(sibling) || Files.getLastModifiedTime(sibling).toMillis() < lastModified)
+                return null;
+            sibling = sibling.toRealPath();
+            return sibling.startsWith(webroot) ? sibling : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /*
+     * If-None-Match takes precedence over If-Modified-Since, which is only honoured for GET and HEAD.
+     * If-None-Match uses the weak comparison, so a W/ prefix from a cache still matches.
+     */
+    static boolean isNotModified(HttpRequest request, String entityTag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/"))
+                    tag = tag.substring(2);
+                if (tag.equals("*") || tag.equals(entityTag))
+                    return true;
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null || (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD))
+            return false;
+        long since = HttpDates.parse(ifModifiedSince);
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    /* A Range is only honoured when If-Range, if present, still matches the current representation. */
+    static boolean isRangeValid(HttpRequest request, String entityTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null)
+            return true;
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return ifRange.equals(entityTag);
+        long date = HttpDates.parse(ifRange);
+        return date >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    /*
+     * Ranges of the file are sent as regions of the same channel, so they are streamed with transferTo
+     * at their offsets; ranges of a cached body are slices of the shared buffer.
+     */
+    private static void sendRanges(HttpResponse response, List<long[]> ranges, long length, String contentType,
+                                   ByteBuffer body, FileChannel channel) {
+        response.setStatusCode(PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.getHeaders().put("Content-Range", contentRange(range, length));
+            if (body != null)
+                response.setBody(slice(body, range));
+            else
+                response.setBody(channel, range[0], range[1] - range[0] + 1);
+            return;
+        }
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(System.nanoTime());
+        response.getHeaders().put("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        for (long[] range : ranges) {
+            String partHead = "\r\n--" + boundary + "\r\nContent-Type: " + contentType
+                    + "\r\nContent-Range: " + contentRange(range, length) + "\r\n\r\n";
+            response.addBodyPart(ByteBuffer.wrap(partHead.getBytes(US_ASCII)));
+            if (body != null)
+                response.addBodyPart(slice(body, range));
+            else
+                response.addBodyPart(channel, range[0], range[1] - range[0] + 1);
+        }
+        response.addBodyPart(ByteBuffer.wrap(("\r\n--" + boundary + "--\r\n").getBytes(US_ASCII)));
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    private static ByteBuffer slice(ByteBuffer body, long[] range) {
+        ByteBuffer slice = body.duplicate();
+        slice.position(slice.position() + (int) range[0]);
+        slice.limit(slice.position() + (int) (range[1] - range[0] + 1));
+        return slice;
+    }
+
+    private static void rangeNotSatisfiable(HttpResponse response, long length) {
+        response.setStatusCode(RANGE_NOT_SATISFIABLE);
+        response.getHeaders().remove("Content-Encoding");
+        response.getHeaders().put("Content-Range", "bytes */" + length);
+        response.getHeaders().put("Content-Type", "text/plain; charset=UTF-8");
+        response.setMessage(RANGE_NOT_SATISFIABLE.MESSAGE);
+    }
+
+    private static void methodNotAllowed(HttpResponse response) {
+        response.setStatusCode(METHOD_NOT_ALLOWED);
+        response.getHeaders().put("Allow", "GET, HEAD");
+        response.getHeaders().put("Content-Type", "text/plain; charset=UTF-8");
+        response.setMessage(METHOD_NOT_ALLOWED.MESSAGE);
+    }
+
+    private static void notFound(HttpResponse response) {
+        response.getHeaders().clear();
+        response.setStatusCode(NOT_FOUND);
+        response.getHeaders().put("Content-Type", "text/plain; charset=UTF-8");
+        response.setMessage(NOT_FOUND.MESSAGE);
+    }
+}
@@ -0,0 +1,17 @@
+package httpserver.http.enums;
+
+public enum ContentCoding {
+
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    public final String CODING;
+
+    ContentCoding(String CODING) {
+        this.CODING = CODING;
+    }
+
+    public String getCoding() {
+        return CODING;
+    }
+}
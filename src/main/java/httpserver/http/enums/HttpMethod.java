@@ -1,7 +1,7 @@
 package httpserver.http.enums;
 
 public enum HttpMethod {
-    GET, HEAD;
+    GET, HEAD, POST, PUT;
 
     public static final int MAX_LENGTH;
 
@@ -4,16 +4,24 @@ public enum HttpStatusCode {
 
     /* --- CLIENT ERRORS --- */
     BAD_REQUEST(400,"Bad Request"),
-    METHOD_NOT_ALLOWED(401,"Method Not Allowed"),
-    URI_TOO_LONG(400,"URI Too Long"),
+    METHOD_NOT_ALLOWED(405,"Method Not Allowed"),
+    NOT_FOUND(404,"Not Found"),
+    PAYLOAD_TOO_LARGE(413,"Payload Too Large"),
+    RANGE_NOT_SATISFIABLE(416,"Range Not Satisfiable"),
+    URI_TOO_LONG(414,"URI Too Long"),
     HEADER_TOO_LARGE(431,"Header Too Large"),
     /* --- SERVER ERRORS --- */
     INTERNAL_SERVER_ERROR(500,"Internal Server Error"),
     NOT_IMPLEMENTED(501,"Not Implemented"),
+    SERVICE_UNAVAILABLE(503,"Service Unavailable"),
     VERSION_NOT_SUPPORTED(505,"Version Not Supported"),
 
     /* --- Success --- */
-    OK(200,"OK");
+    OK(200,"OK"),
+    PARTIAL_CONTENT(206,"Partial Content"),
+
+    /* --- Redirection --- */
+    NOT_MODIFIED(304,"Not Modified");
 
     public final int STATUS_CODE;
     public final String MESSAGE;
@@ -0,0 +1,281 @@
+package httpserver.log;
+
+import httpserver.config.Configuration;
+import httpserver.config.FsyncPolicy;
+import httpserver.core.HttpRequest;
+import httpserver.http.enums.HttpStatusCode;
+import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/*
+ * Access log fed through a bounded ring of preallocated records. A request thread claims a slot with
+ * one CAS and stores fields it already holds, so logging takes no lock, formats nothing and does no
+ * I/O, and in particular never resolves host names. A single writer thread drains the ring in
+ * batches, formats each batch in Common Log Format followed by the duration in microseconds, and
+ * writes it with one write. When the ring is full the record is dropped and counted, never waited for.
+ */
+public class AccessLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLog.class);
+
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final DateTimeFormatter CLF_TIME = DateTimeFormatter
+            .ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    private static final AccessLog DISABLED = new AccessLog(0, null, FsyncPolicy.NEVER, 0);
+    private static volatile AccessLog instance = DISABLED;
+
+    private final int capacity;
+    private final int mask;
+    /* slot i holds a record when its sequence is position + 1, and is free for position when it equals position */
+    private final AtomicLongArray sequences;
+    private final long[] times;
+    private final InetAddress[] remotes;
+    private final HttpMethod[] methods;
+    private final String[] targets;
+    private final HttpVersion[] versions;
+    private final int[] statuses;
+    private final long[] bodyBytes;
+    private final long[] durations;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private final AccessLogFile file;
+    private final FsyncPolicy fsync;
+    private final long fsyncIntervalNanos;
+    private final StringBuilder text = new StringBuilder(64 * 1024);
+    private long head;
+    private long reportedDropped;
+    private long lastSync = System.nanoTime();
+    private boolean unsynced;
+    private long formattedSecond = -1;
+    private String formattedTime;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    AccessLog(int capacity, AccessLogFile file, FsyncPolicy fsync, long fsyncIntervalMillis) {
+        this.capacity = capacity <= 0 ? 0 : Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++)
+            sequences.set(i, i);
+        this.times = new long[this.capacity];
+        this.remotes = new InetAddress[this.capacity];
+        this.methods = new HttpMethod[this.capacity];
+        this.targets = new String[this.capacity];
+        this.versions = new HttpVersion[this.capacity];
+        this.statuses = new int[this.capacity];
+        this.bodyBytes = new long[this.capacity];
+        this.durations = new long[this.capacity];
+        this.file = file;
+        this.fsync = fsync;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+    }
+
+    /* The running access log, or one that discards everything when none is configured. */
+    public static AccessLog get() {
+        return instance;
+    }
+
+    /* Opens the configured log file and starts its writer; without accessLogPath logging stays off. */
+    public static AccessLog start(Configuration configuration) throws IOException {
+        String path = configuration.getAccessLogPath();
+        if (path == null || path.isEmpty())
+            return DISABLED;
+        AccessLogFile file = new AccessLogFile(Paths.get(path), configuration.getAccessLogMaxFileSize(),
+                configuration.getAccessLogMaxFiles());
+        AccessLog accessLog = new AccessLog(Math.max(1, configuration.getAccessLogBufferSize()), file,
+                configuration.getAccessLogFsync(), configuration.getAccessLogFsyncInterval());
+        accessLog.startWriter();
+        Runtime.getRuntime().addShutdownHook(new Thread(accessLog::close, "access-log-shutdown"));
+        instance = accessLog;
+        return accessLog;
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /* As below, for a request that may be null when it failed to parse. */
+    public void log(InetAddress remote, HttpRequest request, HttpStatusCode status, long bodyBytes, long durationNanos) {
+        if (capacity == 0)
+            return;
+        if (request == null)
+            log(remote, null, null, null, status.STATUS_CODE, bodyBytes, durationNanos);
+        else
+            log(remote, request.getMethod(), request.getRequestTarget(), request.getHttpVersion(),
+                    status.STATUS_CODE, bodyBytes, durationNanos);
+    }
+
+    /*
+     * Queues one record. method, target and version are null for requests that failed to parse, and
+     * bodyBytes is -1 when the body length is not known up front.
+     */
+    public void log(InetAddress remote, HttpMethod method, String target, HttpVersion version,
+                    int status, long bodyBytes, long durationNanos) {
+        if (capacity == 0)
+            return;
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long free = sequences.get(index) - position;
+            if (free == 0) {
+                if (tail.compareAndSet(position, position + 1))
+                    break;
+            } else if (free < 0) {
+                dropped.increment();
+                return;
+            }
+        }
+        times[index] = System.currentTimeMillis();
+        remotes[index] = remote;
+        methods[index] = method;
+        targets[index] = target;
+        versions[index] = version;
+        statuses[index] = status;
+        this.bodyBytes[index] = bodyBytes;
+        durations[index] = durationNanos;
+        sequences.lazySet(index, position + 1);
+    }
+
+    /* Records dropped because the ring was full. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /* Stops the writer once everything queued so far is written, then closes the file. */
+    public void close() {
+        if (writer == null || !running)
+            return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startWriter() {
+        running = true;
+        writer = new Thread(this::runWriter, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void runWriter() {
+        while (true) {
+            boolean stopping = !running;
+            int written = 0;
+            try {
+                written = writeBatch();
+                if (fsync == FsyncPolicy.INTERVAL && unsynced && System.nanoTime() - lastSync >= fsyncIntervalNanos)
+                    sync();
+            } catch (IOException e) {
+                LOGGER.error("Problem writing access log", e);
+            }
+            reportDropped();
+            if (written == 0) {
+                if (stopping)
+                    break;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            if (fsync != FsyncPolicy.NEVER && unsynced)
+                sync();
+            file.close();
+        } catch (IOException e) {
+            LOGGER.error("Problem closing access log", e);
+        }
+    }
+
+    /* Drains up to MAX_BATCH records into one write; returns the number of records written. */
+    int writeBatch() throws IOException {
+        text.setLength(0);
+        int count = 0;
+        while (count < MAX_BATCH) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1)
+                break;
+            format(index);
+            remotes[index] = null;
+            targets[index] = null;
+            sequences.lazySet(index, head + capacity);
+            head++;
+            count++;
+        }
+        if (count == 0)
+            return 0;
+        file.write(ByteBuffer.wrap(text.toString().getBytes(US_ASCII)));
+        unsynced = true;
+        if (fsync == FsyncPolicy.BATCH)
+            sync();
+        return count;
+    }
+
+    private void sync() throws IOException {
+        file.sync();
+        unsynced = false;
+        lastSync = System.nanoTime();
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total > reportedDropped) {
+            LOGGER.warn("Access log buffer full, dropped {} records", total - reportedDropped);
+            reportedDropped = total;
+        }
+    }
+
+    private void format(int index) {
+        text.append(remotes[index] == null ? "-" : remotes[index].getHostAddress()).append(" - - [")
+                .append(formatTime(times[index])).append("] \"");
+        if (methods[index] == null) {
+            text.append('-');
+        } else {
+            text.append(methods[index].name()).append(' ').append(targets[index]);
+            if (versions[index] != null)
+                text.append(' ').append(versions[index].VERSION);
+        }
+        text.append("\" ").append(statuses[index]).append(' ');
+        if (bodyBytes[index] < 0)
+            text.append('-');
+        else
+            text.append(bodyBytes[index]);
+        text.append(' ').append(TimeUnit.NANOSECONDS.toMicros(durations[index])).append('\n');
+    }
+
+    /* Consecutive records mostly share a second, so each second is formatted once. */
+    private String formatTime(long epochMillis) {
+        long second = epochMillis / 1000;
+        if (second != formattedSecond) {
+            formattedTime = CLF_TIME.format(Instant.ofEpochSecond(second));
+            formattedSecond = second;
+        }
+        return formattedTime;
+    }
+}
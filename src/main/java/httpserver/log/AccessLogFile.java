@@ -0,0 +1,80 @@
+package httpserver.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/*
+ * Append-only log file rotated by size. Once a write would take the file past maxFileSize it is
+ * renamed to name.1, older files shift up by one and the one beyond maxFiles is deleted. A
+ * maxFileSize of 0 never rotates; a maxFiles of 0 keeps no rotated files.
+ */
+class AccessLogFile implements Closeable {
+
+    private final Path path;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private FileChannel channel;
+    private long size;
+
+    AccessLogFile(Path path, long maxFileSize, int maxFiles) throws IOException {
+        this.path = path;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        open();
+    }
+
+    void write(ByteBuffer data) throws IOException {
+        if (maxFileSize > 0 && size > 0 && size + data.remaining() > maxFileSize)
+            rotate();
+        size += data.remaining();
+        while (data.hasRemaining())
+            channel.write(data);
+    }
+
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    Path rotated(int generation) {
+        return path.resolveSibling(path.getFileName() + "." + generation);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+        size = channel.size();
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        if (maxFiles > 0) {
+            Files.deleteIfExists(rotated(maxFiles));
+            for (int generation = maxFiles - 1; generation >= 1; generation--) {
+                Path older = rotated(generation);
+                if (Files.exists(older))
+                    Files.move(older, rotated(generation + 1), REPLACE_EXISTING);
+            }
+            Files.move(path, rotated(1), REPLACE_EXISTING);
+        } else {
+            Files.delete(path);
+        }
+        open();
+    }
+}
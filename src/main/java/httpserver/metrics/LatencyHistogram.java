@@ -0,0 +1,58 @@
+package httpserver.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latency histogram with fixed bucket bounds from 50 microseconds to 10 seconds. Each bucket is a
+ * LongAdder, so recording is a few lock-free striped increments; the cumulative counts Prometheus
+ * expects are only summed when the histogram is scraped.
+ */
+public class LatencyHistogram {
+
+    private static final double[] BOUNDS_SECONDS = {0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005,
+            0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++)
+            BOUNDS_NANOS[i] = (long) (BOUNDS_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /* the last bucket counts values above the highest bound */
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++)
+            buckets[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket])
+            bucket++;
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets)
+            count += bucket.sum();
+        return count;
+    }
+
+    void write(PrometheusWriter writer, String name, String help) {
+        writer.header(name, help, "histogram");
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            cumulative += buckets[i].sum();
+            writer.sample(name + "_bucket", "le", Double.toString(BOUNDS_SECONDS[i]), cumulative);
+        }
+        cumulative += buckets[BOUNDS_SECONDS.length].sum();
+        writer.sample(name + "_bucket", "le", "+Inf", cumulative);
+        writer.sample(name + "_sum", sumNanos.sum() / 1e9);
+        writer.sample(name + "_count", cumulative);
+    }
+}
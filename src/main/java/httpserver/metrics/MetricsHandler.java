@@ -0,0 +1,23 @@
+package httpserver.metrics;
+
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpResponse;
+
+import java.util.function.BiConsumer;
+
+/* Serves the server metrics in Prometheus text format. */
+public class MetricsHandler implements BiConsumer<HttpRequest, HttpResponse> {
+
+    private final ServerMetrics metrics;
+
+    public MetricsHandler(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void accept(HttpRequest request, HttpResponse response) {
+        response.getHeaders().put("Content-Type", PrometheusWriter.CONTENT_TYPE);
+        response.getHeaders().put("Cache-Control", "no-store");
+        response.setMessage(metrics.scrape());
+    }
+}
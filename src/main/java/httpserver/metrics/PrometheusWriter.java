@@ -0,0 +1,37 @@
+package httpserver.metrics;
+
+/* Builds the Prometheus text exposition format (version 0.0.4). */
+class PrometheusWriter {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder text = new StringBuilder(8192);
+
+    void header(String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    void sample(String name, long value) {
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    void sample(String name, double value) {
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    void sample(String name, String label, String labelValue, long value) {
+        text.append(name).append('{').append(label).append("=\"").append(labelValue).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    void sample(String name, String label1, String value1, String label2, String value2, long value) {
+        text.append(name).append('{').append(label1).append("=\"").append(value1).append("\",")
+                .append(label2).append("=\"").append(value2).append("\"} ").append(value).append('\n');
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package httpserver.metrics;
+
+import httpserver.core.BufferPool;
+import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpStatusCode;
+import httpserver.log.AccessLog;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Server-wide counters and latency histograms. Everything on the request path is a LongAdder
+ * increment indexed by enum ordinal, so recording takes no locks and allocates nothing; the values
+ * are only summed when they are written out for a scrape.
+ */
+public class ServerMetrics {
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final HttpStatusCode[] STATUS_CODES = HttpStatusCode.values();
+
+    private static final ServerMetrics INSTANCE = new ServerMetrics();
+
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder shedConnections = new LongAdder();
+    private final LongAdder[][] requests = new LongAdder[METHODS.length][STATUS_CODES.length];
+    private final LongAdder[] parseErrors = new LongAdder[STATUS_CODES.length];
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+    private final LatencyHistogram handleTime = new LatencyHistogram();
+    private final LatencyHistogram writeTime = new LatencyHistogram();
+
+    ServerMetrics() {
+        for (int method = 0; method < METHODS.length; method++) {
+            for (int status = 0; status < STATUS_CODES.length; status++)
+                requests[method][status] = new LongAdder();
+        }
+        for (int status = 0; status < STATUS_CODES.length; status++)
+            parseErrors[status] = new LongAdder();
+    }
+
+    public static ServerMetrics get() {
+        return INSTANCE;
+    }
+
+    public void connectionAccepted() {
+        acceptedConnections.increment();
+    }
+
+    public void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    public void connectionShed() {
+        shedConnections.increment();
+    }
+
+    public void connectionOpened() {
+        activeConnections.increment();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    public void request(HttpMethod method, HttpStatusCode status) {
+        requests[method.ordinal()][status.ordinal()].increment();
+    }
+
+    public void parseError(HttpStatusCode status) {
+        parseErrors[status.ordinal()].increment();
+    }
+
+    public void bytesReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    public void bytesSent(long bytes) {
+        bytesSent.add(bytes);
+    }
+
+    /* Time spent decoding a request head. */
+    public LatencyHistogram getParseTime() {
+        return parseTime;
+    }
+
+    /* Time spent in the handler. */
+    public LatencyHistogram getHandleTime() {
+        return handleTime;
+    }
+
+    /* Time spent writing queued responses to the socket. */
+    public LatencyHistogram getWriteTime() {
+        return writeTime;
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public long getRequests(HttpMethod method, HttpStatusCode status) {
+        return requests[method.ordinal()][status.ordinal()].sum();
+    }
+
+    public long getParseErrors(HttpStatusCode status) {
+        return parseErrors[status.ordinal()].sum();
+    }
+
+    /* The metrics in Prometheus text format. */
+    public String scrape() {
+        PrometheusWriter writer = new PrometheusWriter();
+        writer.header("http_connections_active", "Connections currently open.", "gauge");
+        writer.sample("http_connections_active", activeConnections.sum());
+        writer.header("http_connections_accepted_total", "Connections accepted.", "counter");
+        writer.sample("http_connections_accepted_total", acceptedConnections.sum());
+        writer.header("http_connections_rejected_total", "Connections closed unserved because the server was saturated.", "counter");
+        writer.sample("http_connections_rejected_total", rejectedConnections.sum());
+        writer.header("http_connections_shed_total", "Connections dropped after waiting too long for a worker.", "counter");
+        writer.sample("http_connections_shed_total", shedConnections.sum());
+
+        writer.header("http_requests_total", "Requests served, by method and response status.", "counter");
+        for (int method = 0; method < METHODS.length; method++) {
+            for (int status = 0; status < STATUS_CODES.length; status++) {
+                long count = requests[method][status].sum();
+                if (count > 0)
+                    writer.sample("http_requests_total", "method", METHODS[method].name(),
+                            "code", Integer.toString(STATUS_CODES[status].STATUS_CODE), count);
+            }
+        }
+        writer.header("http_parse_errors_total", "Requests rejected while parsing, by response status.", "counter");
+        for (int status = 0; status < STATUS_CODES.length; status++) {
+            long count = parseErrors[status].sum();
+            if (count > 0)
+                writer.sample("http_parse_errors_total", "code", Integer.toString(STATUS_CODES[status].STATUS_CODE), count);
+        }
+
+        writer.header("http_received_bytes_total", "Bytes read from connections.", "counter");
+        writer.sample("http_received_bytes_total", bytesReceived.sum());
+        writer.header("http_sent_bytes_total", "Bytes written to connections.", "counter");
+        writer.sample("http_sent_bytes_total", bytesSent.sum());
+
+        parseTime.write(writer, "http_request_parse_seconds", "Time spent decoding request heads.");
+        handleTime.write(writer, "http_request_handle_seconds", "Time spent in request handlers.");
+        writeTime.write(writer, "http_response_write_seconds", "Time spent writing responses to sockets.");
+
+        BufferPool heap = BufferPool.heap();
+        BufferPool direct = BufferPool.direct();
+        writer.header("http_buffer_pool_hits_total", "Buffer acquisitions served from the pool.", "counter");
+        writer.sample("http_buffer_pool_hits_total", "pool", "heap", heap.getHits());
+        writer.sample("http_buffer_pool_hits_total", "pool", "direct", direct.getHits());
+        writer.header("http_buffer_pool_misses_total", "Buffer acquisitions that had to allocate.", "counter");
+        writer.sample("http_buffer_pool_misses_total", "pool", "heap", heap.getMisses());
+        writer.sample("http_buffer_pool_misses_total", "pool", "direct", direct.getMisses());
+        writer.header("http_buffer_pool_outstanding", "Pooled buffers acquired and not yet released.", "gauge");
+        writer.sample("http_buffer_pool_outstanding", "pool", "heap", heap.getOutstanding());
+        writer.sample("http_buffer_pool_outstanding", "pool", "direct", direct.getOutstanding());
+
+        writer.header("http_access_log_dropped_total", "Access log records dropped because the log buffer was full.", "counter");
+        writer.sample("http_access_log_dropped_total", AccessLog.get().getDropped());
+        return writer.toString();
+    }
+}
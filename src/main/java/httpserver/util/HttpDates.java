@@ -0,0 +1,28 @@
+package httpserver.util;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/* IMF-fixdate formatting and parsing, e.g. "Sun, 06 Nov 1994 08:49:37 GMT". */
+public class HttpDates {
+
+    private static final DateTimeFormatter IMF_FIXDATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    public static String format(long epochMillis) {
+        return IMF_FIXDATE.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /* Returns the date in epoch milliseconds, or -1 when the value is not a valid date. */
+    public static long parse(String value) {
+        try {
+            return Instant.from(IMF_FIXDATE.parse(value.trim())).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package httpserver.util;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.*;
 
@@ -12,6 +13,7 @@ public class Json {
     private static ObjectMapper defaultObjectMapper() {
         ObjectMapper om = new ObjectMapper();
         om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        om.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
         return om;
     }
 
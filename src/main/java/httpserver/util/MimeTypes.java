@@ -0,0 +1,52 @@
+package httpserver.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class MimeTypes {
+
+    private static final String DEFAULT_TYPE = "application/octet-stream";
+    private static final Map<String, String> TYPES = new HashMap<>();
+
+    static {
+        TYPES.put("html", "text/html; charset=UTF-8");
+        TYPES.put("htm", "text/html; charset=UTF-8");
+        TYPES.put("css", "text/css; charset=UTF-8");
+        TYPES.put("js", "application/javascript; charset=UTF-8");
+        TYPES.put("mjs", "application/javascript; charset=UTF-8");
+        TYPES.put("json", "application/json; charset=UTF-8");
+        TYPES.put("txt", "text/plain; charset=UTF-8");
+        TYPES.put("log", "text/plain; charset=UTF-8");
+        TYPES.put("csv", "text/csv; charset=UTF-8");
+        TYPES.put("xml", "application/xml; charset=UTF-8");
+        TYPES.put("svg", "image/svg+xml");
+        TYPES.put("png", "image/png");
+        TYPES.put("jpg", "image/jpeg");
+        TYPES.put("jpeg", "image/jpeg");
+        TYPES.put("gif", "image/gif");
+        TYPES.put("webp", "image/webp");
+        TYPES.put("ico", "image/x-icon");
+        TYPES.put("woff", "font/woff");
+        TYPES.put("woff2", "font/woff2");
+        TYPES.put("ttf", "font/ttf");
+        TYPES.put("pdf", "application/pdf");
+        TYPES.put("zip", "application/zip");
+        TYPES.put("gz", "application/gzip");
+        TYPES.put("wasm", "application/wasm");
+        TYPES.put("mp3", "audio/mpeg");
+        TYPES.put("mp4", "video/mp4");
+        TYPES.put("webm", "video/webm");
+    }
+
+    private MimeTypes() {
+    }
+
+    public static String getContentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1)
+            return DEFAULT_TYPE;
+        String type = TYPES.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+        return type == null ? DEFAULT_TYPE : type;
+    }
+}
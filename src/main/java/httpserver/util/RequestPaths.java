@@ -0,0 +1,73 @@
+package httpserver.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/* The path of a request target as handlers see it: percent-decoded, with dot segments removed. */
+public class RequestPaths {
+
+    /*
+     * Returns the decoded path without query and fragment, or null when the target is not an absolute
+     * path, has a malformed escape, decodes to NUL or a backslash, or climbs above the root.
+     */
+    public static String decode(String requestTarget) {
+        int end = requestTarget.length();
+        int query = requestTarget.indexOf('?');
+        if (query >= 0)
+            end = query;
+        int fragment = requestTarget.indexOf('#');
+        if (fragment >= 0 && fragment < end)
+            end = fragment;
+        if (end == 0 || requestTarget.charAt(0) != '/')
+            return null;
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(end);
+        for (int i = 0; i < end; i++) {
+            char c = requestTarget.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= end)
+                    return null;
+                int high = Character.digit(requestTarget.charAt(i + 1), 16);
+                int low = Character.digit(requestTarget.charAt(i + 2), 16);
+                if (high < 0 || low < 0)
+                    return null;
+                c = (char) ((high << 4) | low);
+                i += 2;
+            }
+            if (c == 0 || c == '\\' || c > 0xFF)
+                return null;
+            decoded.write(c);
+        }
+        return normalize(new String(decoded.toByteArray(), UTF_8));
+    }
+
+    /* Removes "." and ".." segments from an absolute path, keeping a trailing slash; null above the root. */
+    static String normalize(String path) {
+        if (!path.contains("/."))
+            return path;
+        String[] segments = path.split("/", -1);
+        List<String> kept = new ArrayList<>(segments.length);
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean last = i == segments.length - 1;
+            if (segment.equals(".")) {
+                if (last)
+                    kept.add("");
+            } else if (segment.equals("..")) {
+                if (kept.isEmpty())
+                    return null;
+                kept.remove(kept.size() - 1);
+                if (last)
+                    kept.add("");
+            } else {
+                kept.add(segment);
+            }
+        }
+        StringBuilder normalized = new StringBuilder(path.length());
+        for (String segment : kept)
+            normalized.append('/').append(segment);
+        return normalized.length() == 0 ? "/" : normalized.toString();
+    }
+}
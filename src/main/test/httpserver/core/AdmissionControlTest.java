@@ -0,0 +1,84 @@
+package httpserver.core;
+
+import httpserver.config.OverloadPolicy;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdmissionControlTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void capOpenConnections() {
+        AdmissionControl admission = new AdmissionControl(2, OverloadPolicy.REFUSE, 1, 0, 0);
+        assertTrue(admission.tryAdmit());
+        assertTrue(admission.tryAdmit());
+        assertFalse(admission.tryAdmit());
+        admission.release();
+        assertTrue(admission.tryAdmit());
+        assertEquals(2, admission.getOpen());
+    }
+
+    @Test
+    public void shedOnlyStandingQueues() {
+        AdmissionControl admission = new AdmissionControl(0, OverloadPolicy.REFUSE, 1, 100, 500);
+        long now = 1000 * MILLIS;
+        assertFalse(admission.shouldShed(50 * MILLIS, now));
+        // a burst above the target is served until it has lasted a whole interval
+        assertFalse(admission.shouldShed(150 * MILLIS, now));
+        assertFalse(admission.shouldShed(300 * MILLIS, now + 400 * MILLIS));
+        assertTrue(admission.shouldShed(300 * MILLIS, now + 500 * MILLIS));
+        assertTrue(admission.shouldShed(120 * MILLIS, now + 600 * MILLIS));
+        // one wait below the target ends shedding
+        assertFalse(admission.shouldShed(10 * MILLIS, now + 700 * MILLIS));
+        assertFalse(admission.shouldShed(300 * MILLIS, now + 800 * MILLIS));
+    }
+
+    @Test
+    public void neverShedWithoutTarget() {
+        AdmissionControl admission = new AdmissionControl(0, OverloadPolicy.REFUSE, 1, 0, 0);
+        assertFalse(admission.shouldShed(TimeUnit.SECONDS.toNanos(60), 0));
+        assertFalse(admission.shouldShed(TimeUnit.SECONDS.toNanos(60), TimeUnit.SECONDS.toNanos(60)));
+    }
+
+    @Test
+    public void answerOverloadWith503() throws IOException {
+        assertEquals("HTTP/1.1 503 Service Unavailable\r\nRetry-After: 7\r\nContent-Length: 0\r\nConnection: close\r\n\r\n",
+                rejected(OverloadPolicy.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    public void refuseWithoutAnswer() throws IOException {
+        assertEquals("", rejected(OverloadPolicy.REFUSE));
+    }
+
+    private static String rejected(OverloadPolicy policy) throws IOException {
+        AdmissionControl admission = new AdmissionControl(1, policy, 7, 0, 0);
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort())) {
+                SocketChannel accepted = server.accept();
+                admission.reject(accepted.socket());
+                assertFalse(accepted.isOpen());
+                InputStream in = client.getInputStream();
+                StringBuilder received = new StringBuilder();
+                int b;
+                while ((b = in.read()) >= 0)
+                    received.append((char) b);
+                return received.toString();
+            }
+        }
+    }
+}
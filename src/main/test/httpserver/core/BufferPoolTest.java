@@ -0,0 +1,118 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpVersion;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTest {
+
+    @Test
+    public void roundUpToSizeClasses() {
+        BufferPool pool = new BufferPool(false, 64 * 1024);
+        assertEquals(1024, pool.acquire(1).capacity());
+        assertEquals(1024, pool.acquire(1024).capacity());
+        assertEquals(2048, pool.acquire(1025).capacity());
+        assertEquals(64 * 1024, pool.acquire(40000).capacity());
+        assertEquals(100000, pool.acquire(100000).capacity());
+    }
+
+    @Test
+    public void reuseReleasedBuffers() {
+        BufferPool pool = new BufferPool(true, 64 * 1024);
+        ByteBuffer first = pool.acquire(4096);
+        assertTrue(first.isDirect());
+        first.put((byte) 1);
+        pool.release(first);
+        assertEquals(1, pool.getPooled());
+        ByteBuffer second = pool.acquire(3000);
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(second.capacity(), second.limit());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(1, pool.getOutstanding());
+        pool.release(second);
+        assertEquals(0, pool.getOutstanding());
+    }
+
+    @Test
+    public void dropBuffersOutsideTheSizeClasses() {
+        BufferPool pool = new BufferPool(false, 64 * 1024);
+        pool.release(pool.acquire(100000));
+        pool.release(ByteBuffer.allocateDirect(1024));
+        pool.release(ByteBuffer.allocate(1000));
+        assertEquals(0, pool.getPooled());
+    }
+
+    @Test
+    public void unpooledAlwaysAllocates() {
+        BufferPool pool = new BufferPool(false, 0);
+        ByteBuffer first = pool.acquire(1024);
+        pool.release(first);
+        assertNotSame(first, pool.acquire(1024));
+        assertEquals(2, pool.getMisses());
+        assertEquals(0, pool.getPooled());
+    }
+
+    @Test
+    public void ignoreDoubleReleaseWithLeakDetection() {
+        BufferPool pool = new BufferPool(false, 64 * 1024);
+        pool.trackLeaks(true);
+        ByteBuffer buffer = pool.acquire(1024);
+        pool.release(buffer);
+        pool.release(buffer);
+        assertEquals(1, pool.getPooled());
+        assertEquals(0, pool.getOutstanding());
+    }
+
+    @Test
+    public void reportBuffersThatAreNeverReleased() throws InterruptedException {
+        BufferPool pool = new BufferPool(false, 64 * 1024);
+        pool.trackLeaks(true);
+        pool.acquire(1024);
+        for (int i = 0; i < 50 && pool.getLeaks() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+            pool.release(pool.acquire(1024));
+        }
+        assertEquals(1, pool.getLeaks());
+        assertEquals(0, pool.getOutstanding());
+    }
+
+    @Test
+    public void decoderHandsItsBufferBackWhenIdle() {
+        BufferPool pool = new BufferPool(false, 64 * 1024);
+        HttpRequestDecoder decoder = new HttpRequestDecoder(1024, pool);
+        decoder.offer(ByteBuffer.wrap("GET / HTTP/1.1\r\nHost: a\r\n\r\n".getBytes(US_ASCII)));
+        assertEquals(HttpRequestDecoder.Status.REQUEST_COMPLETE, decoder.decode());
+        assertEquals(1, pool.getOutstanding());
+        decoder.next();
+        assertEquals(0, pool.getOutstanding());
+        assertFalse(decoder.hasBufferedData());
+        decoder.offer(ByteBuffer.wrap("GET /next HTTP/1.1\r\n\r\n".getBytes(US_ASCII)));
+        assertEquals("/next", decoder.getRequest().getRequestTarget());
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    public void encoderReleasesHeadBuffersOnReset() {
+        BufferPool pool = new BufferPool(true, 64 * 1024);
+        ResponseEncoder encoder = new ResponseEncoder(pool);
+        HttpResponse response = new HttpResponse(HttpVersion.HTTP_1_1);
+        response.getHeaders().put("X-Large", new String(new char[5000]).replace('\0', 'a'));
+        encoder.encode(new HttpResponse(HttpVersion.HTTP_1_1));
+        encoder.encode(response);
+        assertEquals(2, pool.getOutstanding());
+        encoder.reset();
+        assertEquals(0, pool.getOutstanding());
+        assertEquals(2, pool.getPooled());
+    }
+}
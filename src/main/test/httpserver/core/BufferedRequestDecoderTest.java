@@ -0,0 +1,55 @@
+package httpserver.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import static httpserver.core.HttpRequestDecoder.Status.*;
+import static httpserver.http.enums.HttpStatusCode.HEADER_TOO_LARGE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BufferedRequestDecoderTest {
+
+    private static ReadableByteChannel channel(byte[] head, int fill, byte filler) {
+        byte[] data = Arrays.copyOf(head, head.length + fill);
+        Arrays.fill(data, head.length, data.length, filler);
+        return Channels.newChannel(new ByteArrayInputStream(data));
+    }
+
+    @Test
+    public void stopReadingWhileACompletedRequestFillsTheBuffer() throws IOException {
+        byte[] head = "GET /held HTTP/1.1\r\nX-Name: held\r\n\r\n".getBytes(US_ASCII);
+        ReadableByteChannel channel = channel(head, 1024 * 1024, (byte) 'x');
+        HttpRequestDecoder decoder = new HttpRequestDecoder(10, BufferPool.unpooled(false));
+        while (decoder.decode() == NEED_MORE_DATA)
+            decoder.readFrom(channel);
+        HttpRequest request = decoder.getRequest();
+        // whatever follows is read until the buffer is full, which cannot move the request held
+        while (decoder.readFrom(channel) > 0) {
+        }
+        assertFalse(decoder.hasRoom());
+        assertEquals(0, decoder.readFrom(channel));
+        assertEquals("/held", request.getRequestTarget());
+        assertEquals("held", request.getHeader("X-Name"));
+        decoder.next();
+        assertTrue(decoder.hasRoom());
+    }
+
+    @Test
+    public void headThatNeverCompletesFailsWithStatus() throws IOException {
+        ReadableByteChannel channel = channel("GET / HTTP/1.1\r\nX-Long: ".getBytes(US_ASCII), 1024 * 1024, (byte) 'x');
+        HttpRequestDecoder decoder = new HttpRequestDecoder(10, BufferPool.unpooled(false));
+        HttpRequestDecoder.Status status;
+        while ((status = decoder.decode()) == NEED_MORE_DATA)
+            decoder.readFrom(channel);
+        assertEquals(ERROR, status);
+        assertEquals(HEADER_TOO_LARGE, decoder.getErrorCode());
+    }
+}
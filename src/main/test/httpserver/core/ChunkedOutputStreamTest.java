@@ -0,0 +1,183 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpVersion;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedOutputStreamTest {
+
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    private int flushes;
+
+    private final ResponseSink sink = new ResponseSink() {
+        @Override
+        public void write(ByteBuffer... buffers) {
+            for (ByteBuffer buffer : buffers) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                sent.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    };
+
+    @Test
+    public void smallUnflushedBodyGetsContentLength() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, true);
+        response.getOutputStream().write("hello".getBytes(US_ASCII));
+        assertEquals(0, sent.size());
+        response.getStream().close();
+        String output = sent();
+        assertTrue(output.contains("Content-Length: 5\r\n"));
+        assertFalse(output.contains("Transfer-Encoding"));
+        assertTrue(output.endsWith("\r\n\r\nhello"));
+        assertTrue(response.getStream().isKeepAlive());
+    }
+
+    @Test
+    public void flushSendsHeadAndChunks() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, true);
+        OutputStream out = response.getOutputStream();
+        out.flush();
+        assertTrue(sent().startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(sent().contains("Transfer-Encoding: chunked\r\n"));
+        assertFalse(sent().contains("Content-Length"));
+        assertTrue(sent().endsWith("\r\n\r\n"));
+        int headLength = sent.size();
+        out.write("hello".getBytes(US_ASCII));
+        out.flush();
+        out.write(" world".getBytes(US_ASCII));
+        response.getStream().close();
+        assertEquals("5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n", sent().substring(headLength));
+        assertEquals(2, flushes);
+    }
+
+    @Test
+    public void largeWritesStreamWithoutBuffering() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, true);
+        OutputStream out = response.getOutputStream();
+        byte[] data = new byte[20000];
+        Arrays.fill(data, (byte) 'x');
+        out.write(data);
+        assertTrue(sent().contains("\r\n4e20\r\n"));
+        response.getStream().close();
+        assertTrue(sent().endsWith("x\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    public void declaredContentLengthIsNotChunked() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, true);
+        response.getHeaders().put("Content-Length", "11");
+        OutputStream out = response.getOutputStream();
+        out.write("hello".getBytes(US_ASCII));
+        out.flush();
+        out.write(" world".getBytes(US_ASCII));
+        response.getStream().close();
+        assertFalse(sent().contains("chunked"));
+        assertTrue(sent().endsWith("\r\n\r\nhello world"));
+    }
+
+    @Test
+    public void http10IsDelimitedByClose() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_0, true, true);
+        OutputStream out = response.getOutputStream();
+        out.write("hello".getBytes(US_ASCII));
+        out.flush();
+        response.getStream().close();
+        assertFalse(sent().contains("chunked"));
+        assertFalse(sent().contains("Content-Length"));
+        assertTrue(sent().contains("Connection: close\r\n"));
+        assertTrue(sent().endsWith("\r\n\r\nhello"));
+        assertFalse(response.getStream().isKeepAlive());
+    }
+
+    @Test
+    public void headSendsOnlyTheHead() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, false);
+        OutputStream out = response.getOutputStream();
+        out.write("hello".getBytes(US_ASCII));
+        out.flush();
+        out.write("world".getBytes(US_ASCII));
+        response.getStream().close();
+        assertTrue(sent().endsWith("Transfer-Encoding: chunked\r\n\r\n") || sent().endsWith("\r\n\r\n"));
+        assertFalse(sent().contains("hello"));
+        assertFalse(sent().contains("0\r\n\r\n"));
+    }
+
+    @Test
+    public void producerIsAskedForOnePieceAtATime() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, true);
+        int[] produced = new int[1];
+        boolean[] closed = new boolean[1];
+        response.setBody(new BodyProducer() {
+            @Override
+            public boolean produce(OutputStream out) throws IOException {
+                byte[] piece = new byte[10000];
+                Arrays.fill(piece, (byte) 'x');
+                out.write(piece);
+                return ++produced[0] < 3;
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        });
+        ChunkedOutputStream out = response.openProducerStream();
+        assertTrue(out.produce(response.getProducer()));
+        assertEquals(1, produced[0]);
+        assertTrue(sent().contains("\r\n2710\r\n"));
+        while (out.produce(response.getProducer())) {
+        }
+        assertEquals(3, produced[0]);
+        out.close();
+        assertTrue(sent().endsWith("x\r\n0\r\n\r\n"));
+        assertFalse(closed[0]);
+
+        HttpResponse replaced = response(HttpVersion.HTTP_1_1, true, true);
+        replaced.setBody(response.getProducer());
+        replaced.setMessage("replaced");
+        assertTrue(closed[0]);
+    }
+
+    @Test
+    public void producerIsNotAskedForHead() throws IOException {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, false);
+        response.setBody(out -> {
+            throw new AssertionError();
+        });
+        assertFalse(response.openProducerStream().produce(response.getProducer()));
+        assertTrue(sent().endsWith("\r\n\r\n"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void bodyCannotBeReplacedWhileStreaming() {
+        HttpResponse response = response(HttpVersion.HTTP_1_1, true, true);
+        response.getOutputStream();
+        response.setMessage("hello");
+    }
+
+    private HttpResponse response(HttpVersion version, boolean keepAlive, boolean withBody) {
+        HttpResponse response = new HttpResponse(version);
+        response.prepareStream(sink, keepAlive, withBody);
+        return response;
+    }
+
+    private String sent() {
+        return new String(sent.toByteArray(), US_ASCII);
+    }
+}
@@ -0,0 +1,104 @@
+package httpserver.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HttpHeadersTest {
+
+    @Test
+    public void lookupIgnoresCase() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Host", "localhost");
+        headers.add("X-Custom", "1");
+        assertEquals("localhost", headers.get("host"));
+        assertEquals("localhost", headers.get("HOST"));
+        assertEquals("1", headers.get("x-custom"));
+        assertNull(headers.get("Hos"));
+        assertTrue(headers.containsValue("x-CUSTOM", "1"));
+    }
+
+    @Test
+    public void findTokensInEveryListedValue() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Connection", "Upgrade");
+        headers.add("connection", "TE , Close");
+        assertTrue(headers.containsToken("Connection", "close"));
+        assertTrue(headers.containsToken("Connection", "upgrade"));
+        assertFalse(headers.containsToken("Connection", "keep-alive"));
+        assertFalse(headers.containsToken("Connection", "TE , Close"));
+    }
+
+    @Test
+    public void keepRepeatedFields() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Accept", "text/html");
+        headers.add("Cookie", "a=1");
+        headers.add("accept", "*/*");
+        assertEquals(3, headers.size());
+        assertEquals("text/html", headers.get("Accept"));
+        assertEquals(Arrays.asList("text/html", "*/*"), headers.getAll("ACCEPT"));
+        assertEquals(Collections.emptyList(), headers.getAll("Range"));
+    }
+
+    @Test
+    public void growAndReuse() {
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < 40; i++)
+            headers.add("X-" + i, Integer.toString(i));
+        assertEquals(40, headers.size());
+        assertEquals("39", headers.get("x-39"));
+        headers.clear();
+        assertEquals(0, headers.size());
+        assertNull(headers.get("X-0"));
+        headers.add("Host", "example.com");
+        assertEquals("example.com", headers.get("Host"));
+    }
+
+    @Test
+    public void internWellKnownNames() {
+        assertSame(HttpHeaders.CONTENT_LENGTH, HttpHeaders.intern(new StringBuilder("content-length")));
+        assertSame(HttpHeaders.HOST, HttpHeaders.intern(new StringBuilder("HOST")));
+        byte[] name = "user-agent".getBytes(US_ASCII);
+        assertSame(HttpHeaders.USER_AGENT, HttpHeaders.intern(name, 0, name.length));
+        assertEquals("X-Trace", HttpHeaders.intern(new StringBuilder("X-Trace")));
+        assertEquals("Hosts", HttpHeaders.intern(new StringBuilder("Hosts")));
+    }
+
+    @Test
+    public void parserKeepsRepeatedFieldsInReusedHeaders() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        HttpRequest request = HttpParser.parseHttpRequest(stream("GET / HTTP/1.1\r\nhost: a\r\nAccept: x\r\nAccept: y\r\n\r\n"),
+                1024, headers);
+        assertSame(headers, request.getHeaders());
+        assertSame(HttpHeaders.HOST, headers.getName(0));
+        assertEquals(Arrays.asList("x", "y"), request.getHeaders().getAll("accept"));
+        HttpParser.parseHttpRequest(stream("GET / HTTP/1.1\r\nConnection: close\r\n\r\n"), 1024, headers);
+        assertEquals(1, headers.size());
+        assertFalse(headers.contains("Host"));
+    }
+
+    @Test
+    public void decodedHeadersFillDecoderOwnedInstance() {
+        HttpRequestDecoder decoder = new HttpRequestDecoder();
+        decoder.offer(ByteBuffer.wrap("GET / HTTP/1.1\r\nACCEPT-ENCODING: gzip\r\nVia: a\r\nVia: b\r\n\r\n".getBytes(US_ASCII)));
+        assertEquals(HttpRequestDecoder.Status.REQUEST_COMPLETE, decoder.decode());
+        HttpHeaders headers = decoder.getRequest().getHeaders();
+        assertSame(HttpHeaders.ACCEPT_ENCODING, headers.getName(0));
+        assertEquals(Arrays.asList("a", "b"), headers.getAll("via"));
+    }
+
+    private static ByteArrayInputStream stream(String request) {
+        return new ByteArrayInputStream(request.getBytes(US_ASCII));
+    }
+}
@@ -0,0 +1,154 @@
+package httpserver.core;
+
+import httpserver.config.Configuration;
+import httpserver.config.OverloadPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NioConnectionTest {
+
+    /* more than the loopback socket buffers take, so the producer has to wait for the client */
+    private static final int FILLER_SIZE = 8 * 1024 * 1024;
+
+    private ServerSocketChannel server;
+    private NioEventLoopThread loop;
+
+    @Before
+    public void before() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        loop = new NioEventLoopThread("test-loop", new Configuration(), NioConnectionTest::handle,
+                new AdmissionControl(0, OverloadPolicy.REFUSE, 1, 0, 0));
+        loop.start();
+    }
+
+    @After
+    public void after() throws IOException {
+        loop.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void producerReadsRequestWhilePipelinedRequestWaits() throws IOException {
+        try (Socket client = connect()) {
+            send(client, request("/produce", "aaaa", "AAAA", false) + request("/plain", "bbbb", "BBBB", true));
+            String received = readAll(client);
+            assertTrue(received.contains("aaaa:AAAA"));
+            assertTrue(received.endsWith("plain bbbb:BBBB"));
+            assertTrue(received.indexOf("aaaa:AAAA") < received.indexOf("plain bbbb"));
+        }
+    }
+
+    @Test
+    public void producerReadsRequestWhileAnotherConnectionReads() throws IOException, InterruptedException {
+        try (Socket slow = connect()) {
+            send(slow, request("/produce", "aaaa", "AAAA", true));
+            // the producer is now stalled on the unread filler while the other connection is served
+            Thread.sleep(200);
+            try (Socket other = connect()) {
+                send(other, request("/plain", "bbbb", "BBBB", true));
+                assertTrue(readAll(other).endsWith("plain bbbb:BBBB"));
+            }
+            assertTrue(readAll(slow).contains("aaaa:AAAA"));
+        }
+    }
+
+    @Test
+    public void pipelineMoreThanTheBufferHoldsBehindAProducer() throws IOException, InterruptedException {
+        StringBuilder pad = new StringBuilder();
+        for (int i = 0; i < 4000; i++)
+            pad.append('p');
+        StringBuilder pipelined = new StringBuilder(request("/produce", "aaaa", "AAAA", false));
+        // well past what the read buffer holds while the producer keeps the first request in it
+        for (int i = 0; i < 50; i++)
+            pipelined.append("GET /plain HTTP/1.1\r\nHost: localhost\r\nX-Name: n").append(i)
+                    .append("\r\nX-Pad: ").append(pad).append(i == 49 ? "\r\nConnection: close" : "").append("\r\n\r\n");
+        try (Socket client = connect()) {
+            Thread sender = new Thread(() -> {
+                try {
+                    send(client, pipelined.toString());
+                } catch (IOException ignored) {
+                }
+            });
+            sender.start();
+            String received = readAll(client);
+            sender.join();
+            assertTrue(received.contains("aaaa:AAAA"));
+            assertEquals(51, received.split("HTTP/1.1 200 OK").length - 1);
+            assertTrue(received.endsWith("plain n49:"));
+        }
+    }
+
+    /* /produce sends a filler piece, then reads a header and the body of its request in a later piece. */
+    private static void handle(HttpRequest request, HttpResponse response) {
+        if (!request.getRequestTarget().equals("/produce")) {
+            response.setMessage("plain " + describe(request));
+            return;
+        }
+        response.setBody(new BodyProducer() {
+            private int calls;
+
+            @Override
+            public boolean produce(OutputStream out) throws IOException {
+                if (calls++ == 0) {
+                    byte[] filler = new byte[FILLER_SIZE];
+                    Arrays.fill(filler, (byte) '.');
+                    out.write(filler);
+                    return true;
+                }
+                out.write(describe(request).getBytes(US_ASCII));
+                return false;
+            }
+        });
+    }
+
+    private static String describe(HttpRequest request) {
+        try {
+            return request.getHeader("X-Name") + ":" + request.getMessage();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String request(String target, String name, String body, boolean close) {
+        return "POST " + target + " HTTP/1.1\r\nHost: localhost\r\nX-Name: " + name + "\r\nContent-Length: " + body.length()
+                + (close ? "\r\nConnection: close" : "") + "\r\n\r\n" + body;
+    }
+
+    private Socket connect() throws IOException {
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+        client.setSoTimeout(10000);
+        loop.register(server.accept());
+        return client;
+    }
+
+    private static void send(Socket client, String data) throws IOException {
+        client.getOutputStream().write(data.getBytes(US_ASCII));
+        client.getOutputStream().flush();
+    }
+
+    private static String readAll(Socket client) throws IOException {
+        InputStream in = client.getInputStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0)
+            received.write(buffer, 0, read);
+        return new String(received.toByteArray(), US_ASCII);
+    }
+}
@@ -0,0 +1,74 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpStatusCode;
+import httpserver.http.enums.HttpVersion;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseEncoderTest {
+
+    private final ResponseEncoder encoder = new ResponseEncoder();
+
+    @Test
+    public void encodeHeadWithImpliedContentLength() {
+        HttpResponse response = new HttpResponse(HttpVersion.HTTP_1_1);
+        response.getHeaders().put("Content-Type", "text/plain");
+        response.getHeaders().put("X-Custom", "value");
+        response.setMessage("h\u00e9llo");
+        ByteBuffer head = encoder.encode(response);
+        String text = string(head);
+        assertTrue(text.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(text.contains("\r\nContent-Type: text/plain\r\n"));
+        assertTrue(text.contains("\r\nX-Custom: value\r\n"));
+        assertTrue(text.contains("\r\nContent-Length: 6\r\n"));
+        assertTrue(text.endsWith("\r\n\r\n"));
+        assertEquals(ResponseEncoder.headLength(response), head.remaining());
+        assertEquals(6, response.getBodyBuffers().get(0).remaining());
+    }
+
+    @Test
+    public void keepExplicitContentLengthAndOmitItFor304() {
+        HttpResponse response = new HttpResponse(HttpVersion.HTTP_1_0);
+        response.getHeaders().put("Content-Length", "1234567890");
+        assertEquals("HTTP/1.0 200 OK\r\nContent-Length: 1234567890\r\n\r\n", string(encoder.encode(response)));
+        HttpResponse notModified = new HttpResponse(HttpVersion.HTTP_1_1);
+        notModified.setStatusCode(HttpStatusCode.NOT_MODIFIED);
+        assertFalse(string(encoder.encode(notModified)).contains("Content-Length"));
+    }
+
+    @Test
+    public void headsShareTheBufferUntilReset() {
+        HttpResponse response = new HttpResponse(HttpVersion.HTTP_1_1);
+        ByteBuffer first = encoder.encode(response);
+        ByteBuffer second = encoder.encode(response);
+        assertEquals(string(first), string(second));
+        assertSame(first.array(), second.array());
+        assertEquals(first.remaining(), second.arrayOffset());
+        encoder.reset();
+        assertEquals(0, encoder.encode(response).arrayOffset());
+    }
+
+    @Test
+    public void growForLargeHeads() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            value.append('a');
+        HttpResponse response = new HttpResponse(HttpVersion.HTTP_1_1);
+        response.getHeaders().put("Set-Cookie", value.toString());
+        ByteBuffer head = encoder.encode(response);
+        assertTrue(string(head).contains("Set-Cookie: " + value + "\r\n"));
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, US_ASCII);
+    }
+}
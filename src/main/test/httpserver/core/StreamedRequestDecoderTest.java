@@ -0,0 +1,116 @@
+package httpserver.core;
+
+import httpserver.http.enums.HttpStatusCode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static httpserver.core.HttpRequestDecoder.Status.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamedRequestDecoderTest {
+
+    /* Hands out at most a few bytes per read, like a slow connection. */
+    private static InputStream trickle(byte[] data) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    private static HttpRequestDecoder.Status readHead(HttpRequestDecoder decoder) throws IOException {
+        HttpRequestDecoder.Status status;
+        while ((status = decoder.decode()) == NEED_MORE_DATA) {
+            if (decoder.readFromSource() < 0)
+                return null;
+        }
+        return status;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1000];
+        int read;
+        while ((read = in.read(chunk)) >= 0)
+            out.write(chunk, 0, read);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void streamBodyLargerThanTheBuffer() throws IOException {
+        byte[] body = new byte[100 * 1024];
+        for (int i = 0; i < body.length; i++)
+            body[i] = (byte) i;
+        byte[] head = ("POST /upload HTTP/1.1\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(US_ASCII);
+        byte[] next = "GET /next HTTP/1.1\r\n\r\n".getBytes(US_ASCII);
+        byte[] data = new byte[head.length + body.length + next.length];
+        System.arraycopy(head, 0, data, 0, head.length);
+        System.arraycopy(body, 0, data, head.length, body.length);
+        System.arraycopy(next, 0, data, head.length + body.length, next.length);
+
+        HttpRequestDecoder decoder = new HttpRequestDecoder(1024 * 1024, BufferPool.unpooled(false), trickle(data));
+        assertEquals(REQUEST_COMPLETE, readHead(decoder));
+        HttpRequest request = decoder.getRequest();
+        assertEquals("/upload", request.getRequestTarget());
+        assertArrayEquals(body, readAll(request.getBody()));
+        // the head stays readable while the body streams through the buffer after it
+        assertEquals(String.valueOf(body.length), request.getHeader("Content-Length"));
+        decoder.next();
+        assertEquals(REQUEST_COMPLETE, readHead(decoder));
+        assertEquals("/next", decoder.getRequest().getRequestTarget());
+        decoder.next();
+        assertFalse(decoder.hasBufferedData());
+        assertNull(readHead(decoder));
+    }
+
+    @Test
+    public void streamChunkedBodyAndKeepWhatFollows() throws IOException {
+        String data = "POST / HTTP/1.1\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "Expect: 100-continue\r\n" +
+                "\r\n" +
+                "5;name=value\r\nhello\r\n" +
+                "6\r\n world\r\n" +
+                "0\r\n" +
+                "Trailer: ignored\r\n" +
+                "\r\n" +
+                "GET /next HTTP/1.1\r\n\r\n";
+        HttpRequestDecoder decoder = new HttpRequestDecoder(1024, BufferPool.unpooled(false), trickle(data.getBytes(US_ASCII)));
+        assertEquals(REQUEST_COMPLETE, readHead(decoder));
+        assertTrue(decoder.takeContinueExpected());
+        assertEquals("hello world", decoder.getRequest().getMessage());
+        decoder.next();
+        assertEquals(REQUEST_COMPLETE, readHead(decoder));
+        assertEquals("/next", decoder.getRequest().getRequestTarget());
+    }
+
+    @Test
+    public void refuseBodiesOverTheLimit() throws IOException {
+        HttpRequestDecoder decoder = new HttpRequestDecoder(10, BufferPool.unpooled(false),
+                trickle("POST / HTTP/1.1\r\nContent-Length: 11\r\n\r\n".getBytes(US_ASCII)));
+        assertEquals(ERROR, readHead(decoder));
+        assertEquals(HttpStatusCode.PAYLOAD_TOO_LARGE, decoder.getErrorCode());
+
+        decoder = new HttpRequestDecoder(10, BufferPool.unpooled(false), trickle(
+                "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n8\r\n12345678\r\n8\r\n12345678\r\n0\r\n\r\n".getBytes(US_ASCII)));
+        assertEquals(REQUEST_COMPLETE, readHead(decoder));
+        HttpRequest request = decoder.getRequest();
+        try {
+            request.getMessage();
+            fail();
+        } catch (IOException e) {
+            assertEquals(HttpStatusCode.PAYLOAD_TOO_LARGE, request.getBodyError());
+        }
+    }
+}
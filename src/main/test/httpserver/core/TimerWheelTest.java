@@ -0,0 +1,74 @@
+package httpserver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest {
+
+    private static final long TICK = 100;
+
+    private final List<String> fired = new ArrayList<>();
+    private final TimerWheel wheel = new TimerWheel(TICK, 8, 0);
+
+    @Test
+    public void fireOnTheFirstTickAfterTheDeadline() {
+        TimerWheel.Timeout timeout = wheel.newTimeout(() -> fired.add("a"));
+        wheel.schedule(timeout, 250, 0);
+        wheel.advance(299);
+        assertTrue(fired.isEmpty());
+        wheel.advance(300);
+        assertEquals(1, fired.size());
+        assertEquals(0, wheel.size());
+        wheel.advance(10000);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void cancelAndReschedule() {
+        TimerWheel.Timeout a = wheel.newTimeout(() -> fired.add("a"));
+        TimerWheel.Timeout b = wheel.newTimeout(() -> fired.add("b"));
+        wheel.schedule(a, 100, 0);
+        wheel.schedule(b, 100, 0);
+        wheel.cancel(a);
+        wheel.schedule(b, 500, 0);
+        wheel.advance(400);
+        assertTrue(fired.isEmpty());
+        wheel.advance(500);
+        assertEquals("[b]", fired.toString());
+    }
+
+    @Test
+    public void waitOutRoundsBeyondOneTurn() {
+        TimerWheel.Timeout timeout = wheel.newTimeout(() -> fired.add("a"));
+        // 8 buckets of 100 per turn, so this deadline shares a bucket with tick 5
+        wheel.schedule(timeout, 2100, 0);
+        wheel.advance(500);
+        wheel.advance(1300);
+        wheel.advance(2000);
+        assertTrue(fired.isEmpty());
+        wheel.advance(2100);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void expireOverdueTimeoutsOnTheNextAdvance() {
+        wheel.advance(1000);
+        TimerWheel.Timeout timeout = wheel.newTimeout(() -> fired.add("a"));
+        wheel.schedule(timeout, 0, 950);
+        wheel.advance(1100);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void reportTimeToNextTick() {
+        TimerWheel.Timeout timeout = wheel.newTimeout(() -> fired.add("a"));
+        wheel.schedule(timeout, 1000, 0);
+        wheel.advance(230);
+        assertEquals(70, wheel.nanosToNextTick(230));
+    }
+}
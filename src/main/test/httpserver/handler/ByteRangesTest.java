@@ -0,0 +1,54 @@
+package httpserver.handler;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRangesTest {
+
+    @Test
+    public void parseSingleRanges() {
+        assertRanges(ByteRanges.parse("bytes=0-99", 1000), 0, 99);
+        assertRanges(ByteRanges.parse("bytes=500-", 1000), 500, 999);
+        assertRanges(ByteRanges.parse("bytes=-100", 1000), 900, 999);
+        assertRanges(ByteRanges.parse("bytes=-5000", 1000), 0, 999);
+        assertRanges(ByteRanges.parse("bytes=900-5000", 1000), 900, 999);
+        assertRanges(ByteRanges.parse("Bytes=1-1", 1000), 1, 1);
+    }
+
+    @Test
+    public void parseMultipleRangesMerged() {
+        assertRanges(ByteRanges.parse("bytes=500-599, 0-99", 1000), 0, 99, 500, 599);
+        assertRanges(ByteRanges.parse("bytes=0-99,50-149,150-199", 1000), 0, 199);
+        assertRanges(ByteRanges.parse("bytes=0-9,2000-3000", 1000), 0, 9);
+    }
+
+    @Test
+    public void unsatisfiableRanges() {
+        assertTrue(ByteRanges.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRanges.parse("bytes=-0", 1000).isEmpty());
+        assertTrue(ByteRanges.parse("bytes=0-", 0).isEmpty());
+    }
+
+    @Test
+    public void ignoreInvalidRanges() {
+        assertNull(ByteRanges.parse(null, 1000));
+        assertNull(ByteRanges.parse("items=0-1", 1000));
+        assertNull(ByteRanges.parse("bytes=5-1", 1000));
+        assertNull(ByteRanges.parse("bytes=a-b", 1000));
+        assertNull(ByteRanges.parse("bytes=1", 1000));
+        assertNull(ByteRanges.parse("bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,16-17,18-19,20-21,22-23,24-25,26-27,28-29,30-31,32-33", 1000));
+    }
+
+    private static void assertRanges(List<long[]> ranges, long... expected) {
+        assertEquals(expected.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            assertArrayEquals(new long[]{expected[i * 2], expected[i * 2 + 1]}, ranges.get(i));
+        }
+    }
+}
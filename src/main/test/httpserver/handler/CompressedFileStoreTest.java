@@ -0,0 +1,88 @@
+package httpserver.handler;
+
+import httpserver.http.enums.ContentCoding;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class CompressedFileStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void buildOnceThenServeFromDisk() throws IOException, InterruptedException {
+        Path file = folder.newFile("large.txt").toPath();
+        byte[] data = text(200 * 1024);
+        Files.write(file, data);
+        CompressedFileStore store = new CompressedFileStore(folder.newFolder("compressed").getPath());
+
+        assertNull(store.get(file, attributes(file), ContentCoding.GZIP));
+        Path variant = await(store, file, ContentCoding.GZIP);
+        assertArrayEquals(data, gunzip(variant));
+        assertEquals(variant, store.get(file, attributes(file), ContentCoding.GZIP));
+    }
+
+    @Test
+    public void changedFileGetsANewVariant() throws IOException, InterruptedException {
+        Path file = folder.newFile("large.txt").toPath();
+        Files.write(file, text(100 * 1024));
+        CompressedFileStore store = new CompressedFileStore(folder.newFolder("compressed").getPath());
+        store.get(file, attributes(file), ContentCoding.GZIP);
+        Path old = await(store, file, ContentCoding.GZIP);
+
+        byte[] changed = text(150 * 1024);
+        Files.write(file, changed);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertNull(store.get(file, attributes(file), ContentCoding.GZIP));
+        Path variant = await(store, file, ContentCoding.GZIP);
+        assertArrayEquals(changed, gunzip(variant));
+        assertFalse(Files.exists(old));
+    }
+
+    private static Path await(CompressedFileStore store, Path file, ContentCoding coding) throws IOException, InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Path variant = store.get(file, attributes(file), coding);
+            if (variant != null)
+                return variant;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Variant was not built");
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    private static byte[] text(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++)
+            data[i] = (byte) ('a' + (i * 7 + i / 13) % 26);
+        return data;
+    }
+
+    private static byte[] gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package httpserver.handler;
+
+import httpserver.http.enums.ContentCoding;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionTest {
+
+    @Test
+    public void negotiatePrefersGzip() {
+        assertEquals(ContentCoding.GZIP, Compression.negotiate("gzip, deflate, br"));
+        assertEquals(ContentCoding.GZIP, Compression.negotiate("deflate, GZIP"));
+        assertEquals(ContentCoding.GZIP, Compression.negotiate("x-gzip"));
+        assertEquals(ContentCoding.GZIP, Compression.negotiate("*"));
+        assertEquals(ContentCoding.DEFLATE, Compression.negotiate("deflate"));
+        assertEquals(ContentCoding.DEFLATE, Compression.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ContentCoding.DEFLATE, Compression.negotiate("*;q=0.8, gzip;q=0"));
+    }
+
+    @Test
+    public void negotiateIdentity() {
+        assertNull(Compression.negotiate(null));
+        assertNull(Compression.negotiate(""));
+        assertNull(Compression.negotiate("identity"));
+        assertNull(Compression.negotiate("br"));
+        assertNull(Compression.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(Compression.negotiate("*;q=0"));
+        assertNull(Compression.negotiate("gzip;q=2"));
+    }
+
+    @Test
+    public void compressibleTypesAndSizes() {
+        Compression compression = new Compression(100, new String[]{"text/html", "application/json"});
+        assertTrue(compression.isCompressible("text/html; charset=UTF-8", 100));
+        assertTrue(compression.isCompressible("Application/JSON", 1000));
+        assertFalse(compression.isCompressible("text/html", 99));
+        assertFalse(compression.isCompressible("image/png", 1000));
+        assertFalse(compression.isCompressible(null, 1000));
+    }
+
+    @Test
+    public void compressRoundTrip() throws IOException {
+        byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 7);
+        }
+        byte[] gzip = Compression.compress(ContentCoding.GZIP, data, 0, data.length);
+        byte[] deflate = Compression.compress(ContentCoding.DEFLATE, data, 0, data.length);
+        assertTrue(gzip.length < data.length);
+        assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+        assertArrayEquals(data, readAll(new InflaterInputStream(new ByteArrayInputStream(deflate))));
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
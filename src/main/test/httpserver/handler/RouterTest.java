@@ -0,0 +1,107 @@
+package httpserver.handler;
+
+import httpserver.config.HttpConfigurationException;
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpResponse;
+import httpserver.http.enums.HttpMethod;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RouterTest {
+
+    private final BiConsumer<HttpRequest, HttpResponse> index = (request, response) -> { };
+    private final BiConsumer<HttpRequest, HttpResponse> users = (request, response) -> { };
+    private final BiConsumer<HttpRequest, HttpResponse> me = (request, response) -> { };
+    private final BiConsumer<HttpRequest, HttpResponse> user = (request, response) -> { };
+    private final BiConsumer<HttpRequest, HttpResponse> createPost = (request, response) -> { };
+    private final BiConsumer<HttpRequest, HttpResponse> files = (request, response) -> { };
+
+    private Router router;
+
+    @Before
+    public void before() {
+        router = new Router()
+                .add(HttpMethod.GET, "/", index)
+                .add(HttpMethod.GET, "/users", users)
+                .add(HttpMethod.GET, "/users/me", me)
+                .add(HttpMethod.GET, "/users/{id}", user)
+                .add(HttpMethod.POST, "/users/{id}/posts", createPost)
+                .add(HttpMethod.GET, "/static/*file", files);
+    }
+
+    @Test
+    public void matchLiteralRoutes() {
+        assertSame(index, handler(HttpMethod.GET, "/"));
+        assertSame(users, handler(HttpMethod.GET, "/users"));
+        assertSame(me, handler(HttpMethod.GET, "/users/me"));
+    }
+
+    @Test
+    public void matchParameters() {
+        String[] values = new String[1];
+        assertSame(user, router.match("/users/42", values).handler(HttpMethod.GET));
+        assertArrayEquals(new String[]{"42"}, values);
+        assertSame(createPost, router.match("/users/7/posts", values).handler(HttpMethod.POST));
+        assertArrayEquals(new String[]{"7"}, values);
+        assertNull(router.match("/users//posts", values));
+    }
+
+    @Test
+    public void matchWildcards() {
+        String[] values = new String[1];
+        assertSame(files, router.match("/static/css/site.css", values).handler(HttpMethod.GET));
+        assertArrayEquals(new String[]{"css/site.css"}, values);
+        assertSame(files, router.match("/static", values).handler(HttpMethod.GET));
+        assertArrayEquals(new String[]{""}, values);
+    }
+
+    @Test
+    public void literalsWinOverParametersAndBacktrack() {
+        String[] values = new String[1];
+        assertSame(me, router.match("/users/me", values).handler(HttpMethod.GET));
+        assertSame(createPost, router.match("/users/me/posts", values).handler(HttpMethod.POST));
+        assertArrayEquals(new String[]{"me"}, values);
+    }
+
+    @Test
+    public void unknownRoutes() {
+        assertNull(router.match("/missing", new String[1]));
+        assertNull(router.match("/users/42/comments", new String[1]));
+        assertNull(router.match("/users/", new String[1]));
+    }
+
+    @Test
+    public void headFallsBackToGet() {
+        assertSame(user, handler(HttpMethod.HEAD, "/users/42"));
+        assertNull(handler(HttpMethod.POST, "/users/42"));
+        assertEquals("GET, HEAD", router.match("/users/42", new String[1]).getAllow());
+        assertEquals("POST", router.match("/users/42/posts", new String[1]).getAllow());
+    }
+
+    @Test(expected = HttpConfigurationException.class)
+    public void rejectConflictingParameterNames() {
+        router.add(HttpMethod.PUT, "/users/{name}", user);
+    }
+
+    @Test(expected = HttpConfigurationException.class)
+    public void rejectDuplicateRoutes() {
+        router.add(HttpMethod.GET, "/users/{id}", user);
+    }
+
+    @Test(expected = HttpConfigurationException.class)
+    public void rejectWildcardBeforeLastSegment() {
+        router.add(HttpMethod.GET, "/files/*path/edit", files);
+    }
+
+    private BiConsumer<HttpRequest, HttpResponse> handler(HttpMethod method, String path) {
+        Router.Node node = router.match(path, new String[1]);
+        return node == null ? null : node.handler(method);
+    }
+}
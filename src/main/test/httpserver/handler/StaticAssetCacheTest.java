@@ -0,0 +1,121 @@
+package httpserver.handler;
+
+import httpserver.http.enums.ContentCoding;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StaticAssetCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void hitAfterFirstLoad() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(1024, 1024, false);
+        Path file = write("a.txt", "hello");
+        StaticAssetCache.Asset first = get(cache, file);
+        StaticAssetCache.Asset second = get(cache, file);
+        assertSame(first, second);
+        assertEquals("hello", contents(second.getBody()));
+        assertEquals("text/plain", second.getContentType());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(5, cache.getSize());
+    }
+
+    @Test
+    public void offHeapBodies() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(1024, 1024, true);
+        StaticAssetCache.Asset asset = get(cache, write("a.txt", "hello"));
+        assertEquals(true, asset.getBody().isDirect());
+        assertEquals("hello", contents(asset.getBody()));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedOverBudget() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(10, 10, false);
+        Path a = write("a.txt", "aaaa");
+        Path b = write("b.txt", "bbbb");
+        Path c = write("c.txt", "cccc");
+        get(cache, a);
+        get(cache, b);
+        get(cache, a);
+        get(cache, c);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getEntries());
+        assertEquals(8, cache.getSize());
+        get(cache, a);
+        assertEquals(2, cache.getHits());
+        get(cache, b);
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void skipFilesOverMaxFileSize() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(1024, 4, false);
+        assertNull(get(cache, write("a.txt", "hello")));
+        assertEquals(0, cache.getEntries());
+    }
+
+    @Test
+    public void reloadWhenFileChanges() throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(1024, 1024, false);
+        Path file = write("a.txt", "hello");
+        StaticAssetCache.Asset first = get(cache, file);
+        Files.write(file, "hello, world".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        StaticAssetCache.Asset second = get(cache, file);
+        assertNotNull(second);
+        assertEquals("hello, world", contents(second.getBody()));
+        assertEquals("hello", contents(first.getBody()));
+        assertEquals(0, cache.getHits());
+        assertEquals(12, cache.getSize());
+        assertEquals(1, cache.getEntries());
+    }
+
+    @Test
+    public void keepCompressedEncodings() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("hello, world\n");
+        }
+        StaticAssetCache cache = new StaticAssetCache(4096, 4096, false, new Compression(10, new String[]{"text/plain"}));
+        StaticAssetCache.Asset asset = get(cache, write("a.txt", text.toString()));
+        ByteBuffer gzip = asset.getBody(ContentCoding.GZIP);
+        ByteBuffer deflate = asset.getBody(ContentCoding.DEFLATE);
+        assertTrue(gzip.remaining() < 1300);
+        assertEquals(1300 + gzip.remaining() + deflate.remaining(), cache.getSize());
+        assertEquals(asset.getEntityTag().replace("\"", ""), asset.getEntityTag(ContentCoding.GZIP).replace("-gzip\"", "").replace("\"", ""));
+
+        StaticAssetCache.Asset small = get(cache, write("b.txt", "tiny"));
+        assertNull(small.getBody(ContentCoding.GZIP));
+    }
+
+    private Path write(String name, String contents) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve(name), contents.getBytes());
+    }
+
+    private static StaticAssetCache.Asset get(StaticAssetCache cache, Path file) throws IOException {
+        return cache.get(file, Files.readAttributes(file, BasicFileAttributes.class), "text/plain");
+    }
+
+    private static String contents(ByteBuffer body) {
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return new String(bytes);
+    }
+}
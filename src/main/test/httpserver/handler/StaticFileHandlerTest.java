@@ -0,0 +1,100 @@
+package httpserver.handler;
+
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpRequestDecoder;
+import httpserver.util.HttpDates;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StaticFileHandlerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File webroot;
+    private StaticFileHandler handler;
+
+    @Before
+    public void before() throws IOException {
+        webroot = folder.newFolder("webroot");
+        Files.write(new File(webroot, "index.html").toPath(), "<html></html>".getBytes());
+        new File(webroot, "css").mkdir();
+        Files.write(new File(webroot, "css/site.css").toPath(), "body {}".getBytes());
+        Files.write(folder.newFile("secret.txt").toPath(), "secret".getBytes());
+        handler = new StaticFileHandler(webroot.getPath());
+    }
+
+    @Test
+    public void resolveFilesUnderWebroot() throws IOException {
+        String root = webroot.getCanonicalPath();
+        assertEquals(new File(root, "index.html").toPath(), handler.resolve("/"));
+        assertEquals(new File(root, "css/site.css").toPath(), handler.resolve("/css/site.css"));
+        assertEquals(new File(root, "css/site.css").toPath(), handler.resolve("/css/site.css?v=2"));
+        assertEquals(new File(root, "css/site.css").toPath(), handler.resolve("/css/%73ite.css"));
+    }
+
+    @Test
+    public void resolveRejectsPathTraversal() {
+        assertNull(handler.resolve("/../secret.txt"));
+        assertNull(handler.resolve("/css/../../secret.txt"));
+        assertNull(handler.resolve("/%2e%2e/secret.txt"));
+        assertNull(handler.resolve("/%2E%2E%2Fsecret.txt"));
+        assertNull(handler.resolve("/..%5csecret.txt"));
+        assertNull(handler.resolve("/index.html%00.txt"));
+        assertNull(handler.resolve("//etc/passwd"));
+        assertNull(handler.resolve("secret.txt"));
+    }
+
+    @Test
+    public void resolveRejectsMissingFiles() {
+        assertNull(handler.resolve("/missing.html"));
+        assertNull(handler.resolve("/css/"));
+        assertNull(handler.resolve("/%zz"));
+    }
+
+    @Test
+    public void notModifiedWhenEntityTagMatches() {
+        String tag = StaticFileHandler.entityTag(13, 1000000, null);
+        assertTrue(StaticFileHandler.isNotModified(request("If-None-Match: " + tag), tag, 1000000));
+        assertTrue(StaticFileHandler.isNotModified(request("If-None-Match: \"x\", W/" + tag), tag, 1000000));
+        assertTrue(StaticFileHandler.isNotModified(request("If-None-Match: *"), tag, 1000000));
+        assertFalse(StaticFileHandler.isNotModified(request("If-None-Match: \"x\""), tag, 1000000));
+        assertFalse(StaticFileHandler.isNotModified(request("If-None-Match: " + StaticFileHandler.entityTag(14, 1000000, null)), tag, 1000000));
+    }
+
+    @Test
+    public void entityTagTakesPrecedenceOverModifiedSince() {
+        String tag = StaticFileHandler.entityTag(13, 1000000, null);
+        String since = HttpDates.format(2000000);
+        assertFalse(StaticFileHandler.isNotModified(request("If-None-Match: \"x\"\r\nIf-Modified-Since: " + since), tag, 1000000));
+    }
+
+    @Test
+    public void notModifiedSinceDate() {
+        String tag = StaticFileHandler.entityTag(13, 1000500, null);
+        assertTrue(StaticFileHandler.isNotModified(request("If-Modified-Since: " + HttpDates.format(1000000)), tag, 1000500));
+        assertTrue(StaticFileHandler.isNotModified(request("If-Modified-Since: " + HttpDates.format(2000000)), tag, 1000500));
+        assertFalse(StaticFileHandler.isNotModified(request("If-Modified-Since: " + HttpDates.format(999000)), tag, 1000500));
+        assertFalse(StaticFileHandler.isNotModified(request("If-Modified-Since: yesterday"), tag, 1000500));
+    }
+
+    private static HttpRequest request(String header) {
+        HttpRequestDecoder decoder = new HttpRequestDecoder();
+        decoder.offer(ByteBuffer.wrap(("GET / HTTP/1.1\r\nHost: localhost\r\n" + header + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(HttpRequestDecoder.Status.REQUEST_COMPLETE, decoder.decode());
+        return decoder.getRequest();
+    }
+}
@@ -17,6 +17,8 @@ import static httpserver.http.enums.HttpMethod.GET;
 import static httpserver.http.enums.HttpStatusCode.*;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class HttpParserTest {
@@ -49,7 +51,8 @@ public class HttpParserTest {
         assertEquals(2, request.getHeaders().size());
         assertEquals("localhost:8080", request.getHeaders().get("Host"));
         assertEquals("keep-alive", request.getHeaders().get("Connection"));
-        assertEquals("hello", request.getMessage());
+        // without Content-Length or Transfer-Encoding a request has no body
+        assertEquals("", request.getMessage());
     }
 
     @Test
@@ -64,7 +67,7 @@ public class HttpParserTest {
         assertEquals("/", request.getRequestTarget());
         assertEquals("HTTP/1.1", request.getHttpVersion().getVersion());
         assertEquals(0, request.getHeaders().size());
-        assertEquals("hello", request.getMessage());
+        assertEquals("", request.getMessage());
     }
 
     @Test
@@ -360,4 +363,154 @@ public class HttpParserTest {
             LOGGER.debug("Test Passed", e);
         }
     }
+
+    @Test
+    public void parseHttpRequestTestBodyFramedByContentLength() throws HttpParsingException, IOException {
+        InputStream inputStream = getInputStream(
+                "GET / HTTP/1.1\r\n" +
+                        "Content-Length: 5\r\n" +
+                        "\r\n" +
+                        "helloGET /next HTTP/1.1\r\n" +
+                        "\r\n"
+        );
+        HttpRequest request = httpParser.parseHttpRequest(inputStream);
+        assertEquals(5, request.getContentLength());
+        assertEquals("hello", request.getMessage());
+        HttpRequest next = httpParser.parseHttpRequest(inputStream);
+        assertEquals("/next", next.getRequestTarget());
+    }
+
+    @Test
+    public void parseHttpRequestTestInvalidContentLength() {
+        try {
+            httpParser.parseHttpRequest(getInputStream(
+                    "GET / HTTP/1.1\r\n" +
+                            "Content-Length: five\r\n" +
+                            "\r\n"
+            ));
+            fail();
+        } catch (HttpParsingException e) {
+            assertEquals(BAD_REQUEST, e.getErrorCode());
+            LOGGER.debug("Test Passed", e);
+        }
+    }
+
+    @Test
+    public void parseHttpRequestTestKeepAlive() throws HttpParsingException {
+        assertTrue(httpParser.parseHttpRequest(getInputStream("GET / HTTP/1.1\r\n\r\n")).isKeepAlive());
+        assertFalse(httpParser.parseHttpRequest(getInputStream("GET / HTTP/1.1\r\nConnection: close\r\n\r\n")).isKeepAlive());
+        assertFalse(httpParser.parseHttpRequest(getInputStream("GET / HTTP/1.0\r\n\r\n")).isKeepAlive());
+        assertTrue(httpParser.parseHttpRequest(getInputStream("GET / HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n")).isKeepAlive());
+        assertFalse(httpParser.parseHttpRequest(getInputStream("GET / HTTP/1.1\r\nConnection: Upgrade\r\nConnection: TE, close\r\n\r\n")).isKeepAlive());
+        assertTrue(httpParser.parseHttpRequest(getInputStream("GET / HTTP/1.0\r\nConnection: keep-alive, Upgrade\r\n\r\n")).isKeepAlive());
+    }
+
+    @Test
+    public void parseHttpRequestTestBinaryBody() throws HttpParsingException, IOException {
+        byte[] head = "POST / HTTP/1.1\r\nContent-Length: 4\r\n\r\n".getBytes(US_ASCII);
+        byte[] data = new byte[head.length + 4];
+        System.arraycopy(head, 0, data, 0, head.length);
+        data[head.length] = 0;
+        data[head.length + 1] = (byte) 0xFF;
+        data[head.length + 2] = '\r';
+        data[head.length + 3] = 0;
+        HttpRequest request = httpParser.parseHttpRequest(new ByteArrayInputStream(data));
+        InputStream body = request.getBody();
+        assertEquals(0, body.read());
+        assertEquals(0xFF, body.read());
+        assertEquals('\r', body.read());
+        assertEquals(0, body.read());
+        assertEquals(-1, body.read());
+    }
+
+    @Test
+    public void parseHttpRequestTestChunkedBody() throws HttpParsingException, IOException {
+        InputStream inputStream = getInputStream(
+                "POST / HTTP/1.1\r\n" +
+                        "Transfer-Encoding: chunked\r\n" +
+                        "\r\n" +
+                        "5;name=value\r\nhello\r\n" +
+                        "6\r\n world\r\n" +
+                        "0\r\n" +
+                        "Trailer: ignored\r\n" +
+                        "\r\n" +
+                        "GET /next HTTP/1.1\r\n" +
+                        "\r\n"
+        );
+        HttpRequest request = httpParser.parseHttpRequest(inputStream);
+        assertTrue(request.isChunked());
+        assertEquals("hello world", request.getMessage());
+        assertEquals("/next", httpParser.parseHttpRequest(inputStream).getRequestTarget());
+    }
+
+    @Test
+    public void parseHttpRequestTestBodiesDelimitRequests() throws HttpParsingException, IOException {
+        InputStream inputStream = getInputStream(
+                "POST / HTTP/1.1\r\n" +
+                        "Transfer-Encoding: chunked\r\n" +
+                        "\r\n" +
+                        "5\r\nhello\r\n0\r\n\r\n" +
+                        "POST /next HTTP/1.1\r\n" +
+                        "Content-Length: 3\r\n" +
+                        "\r\n" +
+                        "abc" +
+                        "GET /last HTTP/1.1\r\n" +
+                        "\r\n"
+        );
+        assertEquals("hello", httpParser.parseHttpRequest(inputStream).getMessage());
+        HttpRequest next = httpParser.parseHttpRequest(inputStream);
+        assertEquals("/next", next.getRequestTarget());
+        assertEquals("abc", next.getMessage());
+        assertEquals("/last", httpParser.parseHttpRequest(inputStream).getRequestTarget());
+    }
+
+    @Test
+    public void parseHttpRequestTestBodyTooLarge() throws HttpParsingException {
+        try {
+            httpParser.parseHttpRequest(getInputStream("POST / HTTP/1.1\r\nContent-Length: 11\r\n\r\n"), 10);
+            fail();
+        } catch (HttpParsingException e) {
+            assertEquals(PAYLOAD_TOO_LARGE, e.getErrorCode());
+        }
+        HttpRequest request = httpParser.parseHttpRequest(getInputStream(
+                "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n8\r\n12345678\r\n8\r\n12345678\r\n0\r\n\r\n"), 10);
+        try {
+            request.getMessage();
+            fail();
+        } catch (IOException e) {
+            assertTrue(request.isBodyTooLarge());
+        }
+    }
+
+    @Test
+    public void parseHttpRequestTestTrailerTooLarge() throws HttpParsingException {
+        StringBuilder trailer = new StringBuilder();
+        while (trailer.length() <= 64 * 1024)
+            trailer.append("X-Trailer: 0123456789abcdef\r\n");
+        HttpRequest request = httpParser.parseHttpRequest(getInputStream(
+                "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n1\r\na\r\n0\r\n" + trailer + "\r\n"));
+        try {
+            request.getMessage();
+            fail();
+        } catch (IOException e) {
+            assertEquals(HEADER_TOO_LARGE, request.getBodyError());
+        }
+    }
+
+    @Test
+    public void parseHttpRequestTestInvalidTransferEncoding() {
+        try {
+            httpParser.parseHttpRequest(getInputStream("POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n"));
+            fail();
+        } catch (HttpParsingException e) {
+            assertEquals(NOT_IMPLEMENTED, e.getErrorCode());
+        }
+        try {
+            httpParser.parseHttpRequest(getInputStream(
+                    "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n"));
+            fail();
+        } catch (HttpParsingException e) {
+            assertEquals(BAD_REQUEST, e.getErrorCode());
+        }
+    }
 }
@@ -0,0 +1,198 @@
+package httpserver.http;
+
+import httpserver.core.HttpRequest;
+import httpserver.core.HttpRequestDecoder;
+import httpserver.http.enums.HttpStatusCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static httpserver.core.HttpRequestDecoder.Status.*;
+import static httpserver.http.enums.HttpMethod.GET;
+import static httpserver.http.enums.HttpMethod.HEAD;
+import static httpserver.http.enums.HttpStatusCode.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HttpRequestDecoderTest {
+
+    private HttpRequestDecoder decoder;
+
+    @Before
+    public void before() {
+        decoder = new HttpRequestDecoder();
+    }
+
+    private ByteBuffer getBuffer(String request) {
+        return ByteBuffer.wrap(request.getBytes(US_ASCII));
+    }
+
+    private void assertDecodeError(HttpStatusCode expected, String request) {
+        decoder = new HttpRequestDecoder();
+        assertEquals(ERROR, decoder.offer(getBuffer(request)));
+        assertEquals(expected, decoder.getErrorCode());
+    }
+
+    @Test
+    public void decodeValidGet() throws IOException {
+        ByteBuffer buffer = getBuffer(
+                "GET /index.html HTTP/1.1\r\n" +
+                        "Host: localhost:8080\r\n" +
+                        "Connection: keep-alive\r\n" +
+                        "\r\n" +
+                        "hello"
+        );
+        assertEquals(REQUEST_COMPLETE, decoder.offer(buffer));
+        HttpRequest request = decoder.getRequest();
+        assertEquals(GET, request.getMethod());
+        assertEquals("/index.html", request.getRequestTarget());
+        assertEquals("HTTP/1.1", request.getHttpVersion().getVersion());
+        assertEquals(2, request.getHeaders().size());
+        assertEquals("localhost:8080", request.getHeaders().get("Host"));
+        assertEquals("keep-alive", request.getHeader("connection"));
+        assertEquals(-1, request.getContentLength());
+        assertEquals("", request.getMessage());
+    }
+
+    @Test
+    public void decodeOneByteAtATime() throws IOException {
+        byte[] bytes = ("HEAD /a HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n" +
+                "hello").getBytes(US_ASCII);
+        for (int i = 0; i < bytes.length - 1; i++)
+            assertEquals(NEED_MORE_DATA, decoder.offer(ByteBuffer.wrap(bytes, i, 1)));
+        assertEquals(REQUEST_COMPLETE, decoder.offer(ByteBuffer.wrap(bytes, bytes.length - 1, 1)));
+        assertEquals(HEAD, decoder.getRequest().getMethod());
+        assertEquals("localhost", decoder.getRequest().getHeader("Host"));
+        assertEquals("hello", decoder.getRequest().getMessage());
+    }
+
+    @Test
+    public void decodePipelinedRequests() throws IOException {
+        ByteBuffer buffer = getBuffer(
+                "GET /first HTTP/1.1\r\nContent-Length: 3\r\n\r\nabc" +
+                        "GET /second HTTP/1.0\r\n\r\n"
+        );
+        assertEquals(REQUEST_COMPLETE, decoder.offer(buffer));
+        assertEquals("/first", decoder.getRequest().getRequestTarget());
+        assertEquals("abc", decoder.getRequest().getMessage());
+        decoder.next();
+        assertEquals(REQUEST_COMPLETE, decoder.offer(buffer));
+        assertEquals("/second", decoder.getRequest().getRequestTarget());
+        assertEquals("HTTP/1.0", decoder.getRequest().getHttpVersion().getVersion());
+        decoder.next();
+        assertEquals(NEED_MORE_DATA, decoder.offer(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void decodeRequestLargerThanInitialBuffer() throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            body.append((char) ('a' + i % 26));
+        String head = "GET / HTTP/1.1\r\nContent-Length: " + body.length() + "\r\n\r\n";
+        assertEquals(NEED_MORE_DATA, decoder.offer(getBuffer(head + body.substring(0, 100))));
+        assertEquals(REQUEST_COMPLETE, decoder.offer(getBuffer(body.substring(100))));
+        assertEquals(body.toString(), decoder.getRequest().getMessage());
+    }
+
+    @Test
+    public void decodeInvalidRequestLines() {
+        assertDecodeError(BAD_REQUEST, "\r\n");
+        assertDecodeError(BAD_REQUEST, "GET / HTTP/1.1\n\r\n");
+        assertDecodeError(BAD_REQUEST, "GET A BAD REQUEST HTTP/1.1\r\n\r\n");
+        assertDecodeError(NOT_IMPLEMENTED, "Get / HTTP/1.1\r\n\r\n");
+        assertDecodeError(NOT_IMPLEMENTED, "VERY_LONG_METHOD / HTTP/1.1\r\n\r\n");
+        assertDecodeError(VERSION_NOT_SUPPORTED, "GET / HTTP/1.2\r\n\r\n");
+        assertDecodeError(VERSION_NOT_SUPPORTED, "GET / HTTP/1.0000000");
+    }
+
+    @Test
+    public void decodeLongUriBeforeLineIsComplete() {
+        StringBuilder uri = new StringBuilder();
+        for (int i = 0; i < 2049; i++)
+            uri.append("a");
+        assertDecodeError(URI_TOO_LONG, "GET " + uri);
+    }
+
+    @Test
+    public void decodeInvalidHeaders() {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 4097; i++)
+            key.append("a");
+        assertDecodeError(HEADER_TOO_LARGE, "GET / HTTP/1.1\r\n" + key);
+        assertDecodeError(BAD_REQUEST, "GET / HTTP/1.1\r\nHost localhost:8080\r\n\r\n");
+        assertDecodeError(BAD_REQUEST, "GET / HTTP/1.1\r\nhost: localhost:8080\n\r\n");
+        assertDecodeError(BAD_REQUEST, "GET / HTTP/1.1\r\nhost: localhost:8080\r\r\n");
+        assertDecodeError(BAD_REQUEST, "GET / HTTP/1.1\r\nContent-Length: -1\r\n\r\n");
+    }
+
+    @Test
+    public void decodeChunkedBodyOneByteAtATime() throws IOException {
+        String request = "POST / HTTP/1.1\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "5;name=value\r\nhello\r\n" +
+                "6\r\n world\r\n" +
+                "0\r\n" +
+                "Trailer: ignored\r\n" +
+                "\r\n" +
+                "GET /next HTTP/1.1\r\n\r\n";
+        ByteBuffer buffer = getBuffer(request);
+        HttpRequestDecoder.Status status = NEED_MORE_DATA;
+        int fed = 0;
+        while (status == NEED_MORE_DATA) {
+            status = decoder.offer(ByteBuffer.wrap(new byte[]{buffer.get(fed++)}));
+        }
+        assertEquals(REQUEST_COMPLETE, status);
+        assertEquals("hello world", decoder.getRequest().getMessage());
+        decoder.next();
+        assertEquals(NEED_MORE_DATA, decoder.decode());
+        assertEquals(REQUEST_COMPLETE, decoder.offer(ByteBuffer.wrap(request.substring(fed).getBytes(US_ASCII))));
+        assertEquals("/next", decoder.getRequest().getRequestTarget());
+    }
+
+    @Test
+    public void decodeBodyTooLarge() {
+        decoder = new HttpRequestDecoder(10);
+        assertEquals(ERROR, decoder.offer(getBuffer("POST / HTTP/1.1\r\nContent-Length: 11\r\n\r\n")));
+        assertEquals(PAYLOAD_TOO_LARGE, decoder.getErrorCode());
+        decoder = new HttpRequestDecoder(10);
+        assertEquals(ERROR, decoder.offer(getBuffer(
+                "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n8\r\n12345678\r\n8\r\n12345678\r\n")));
+        assertEquals(PAYLOAD_TOO_LARGE, decoder.getErrorCode());
+        assertDecodeError(BAD_REQUEST, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n");
+        assertDecodeError(NOT_IMPLEMENTED, "POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n");
+    }
+
+    @Test
+    public void decodeTrailerTooLarge() {
+        StringBuilder trailer = new StringBuilder();
+        while (trailer.length() <= 64 * 1024)
+            trailer.append("X-Trailer: 0123456789abcdef\r\n");
+        assertDecodeError(HEADER_TOO_LARGE, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n1\r\na\r\n0\r\n" + trailer + "\r\n");
+    }
+
+    @Test
+    public void decodeConnectionTokenLists() {
+        assertFalse(keepAlive("GET / HTTP/1.1\r\nConnection: close\r\n"));
+        assertFalse(keepAlive("GET / HTTP/1.1\r\nConnection: TE, Close\r\n"));
+        assertFalse(keepAlive("GET / HTTP/1.1\r\nConnection: Upgrade\r\nConnection: te,close \r\n"));
+        assertTrue(keepAlive("GET / HTTP/1.1\r\nConnection: closed, upgrade\r\n"));
+        assertTrue(keepAlive("GET / HTTP/1.0\r\nConnection: keep-alive, Upgrade\r\n"));
+        assertTrue(keepAlive("GET / HTTP/1.0\r\nConnection: Upgrade,\tKeep-Alive\r\n"));
+        assertFalse(keepAlive("GET / HTTP/1.0\r\nConnection: Upgrade\r\n"));
+    }
+
+    private boolean keepAlive(String head) {
+        decoder = new HttpRequestDecoder();
+        assertEquals(REQUEST_COMPLETE, decoder.offer(getBuffer(head + "\r\n")));
+        return decoder.getRequest().isKeepAlive();
+    }
+}
@@ -0,0 +1,82 @@
+package httpserver.log;
+
+import httpserver.config.Configuration;
+import httpserver.config.FsyncPolicy;
+import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpVersion;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AccessLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeCommonLogFormat() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("access.log");
+        AccessLog log = new AccessLog(8, new AccessLogFile(path, 0, 0), FsyncPolicy.NEVER, 0);
+        InetAddress remote = InetAddress.getByAddress(new byte[]{127, 0, 0, 1});
+        log.log(remote, HttpMethod.GET, "/index.html", HttpVersion.HTTP_1_1, 200, 78, 412000);
+        log.log(remote, null, null, null, 400, 11, 5000);
+        log.log(remote, HttpMethod.GET, "/stream", HttpVersion.HTTP_1_1, 200, -1, 1000);
+        assertEquals(3, log.writeBatch());
+        assertEquals(0, log.writeBatch());
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).matches(
+                "127\\.0\\.0\\.1 - - \\[\\d{2}/\\w{3}/\\d{4}:\\d{2}:\\d{2}:\\d{2} \\+0000] \"GET /index.html HTTP/1.1\" 200 78 412"));
+        assertTrue(lines.get(1).endsWith("\"-\" 400 11 5"));
+        assertTrue(lines.get(2).endsWith("\"GET /stream HTTP/1.1\" 200 - 1"));
+    }
+
+    @Test
+    public void dropRecordsWhenFull() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("access.log");
+        AccessLog log = new AccessLog(4, new AccessLogFile(path, 0, 0), FsyncPolicy.NEVER, 0);
+        for (int i = 0; i < 6; i++)
+            log.log(null, HttpMethod.GET, "/" + i, HttpVersion.HTTP_1_1, 200, 0, 0);
+        assertEquals(2, log.getDropped());
+        assertEquals(4, log.writeBatch());
+
+        log.log(null, HttpMethod.GET, "/again", HttpVersion.HTTP_1_1, 200, 0, 0);
+        assertEquals(1, log.writeBatch());
+        List<String> lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(3).contains("GET /3 "));
+        assertTrue(lines.get(4).contains("GET /again "));
+        assertEquals(2, log.getDropped());
+    }
+
+    @Test
+    public void rotateBySize() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("access.log");
+        AccessLogFile file = new AccessLogFile(path, 10, 2);
+        for (int i = 0; i < 4; i++)
+            file.write(ByteBuffer.wrap(("line-" + i + "\n").getBytes(StandardCharsets.US_ASCII)));
+        file.close();
+        assertEquals("line-3\n", new String(Files.readAllBytes(path), StandardCharsets.US_ASCII));
+        assertEquals("line-2\n", new String(Files.readAllBytes(file.rotated(1)), StandardCharsets.US_ASCII));
+        assertEquals("line-1\n", new String(Files.readAllBytes(file.rotated(2)), StandardCharsets.US_ASCII));
+        assertFalse(Files.exists(file.rotated(3)));
+    }
+
+    @Test
+    public void disabledWithoutPath() throws IOException {
+        assertFalse(AccessLog.start(new Configuration()).isEnabled());
+    }
+}
@@ -0,0 +1,57 @@
+package httpserver.metrics;
+
+import httpserver.http.enums.HttpMethod;
+import httpserver.http.enums.HttpStatusCode;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ServerMetricsTest {
+
+    @Test
+    public void countRequestsByMethodAndStatus() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.request(HttpMethod.GET, HttpStatusCode.OK);
+        metrics.request(HttpMethod.GET, HttpStatusCode.OK);
+        metrics.request(HttpMethod.HEAD, HttpStatusCode.NOT_FOUND);
+        assertEquals(2, metrics.getRequests(HttpMethod.GET, HttpStatusCode.OK));
+        assertEquals(1, metrics.getRequests(HttpMethod.HEAD, HttpStatusCode.NOT_FOUND));
+        assertEquals(0, metrics.getRequests(HttpMethod.GET, HttpStatusCode.NOT_FOUND));
+
+        String text = metrics.scrape();
+        assertTrue(text.contains("http_requests_total{method=\"GET\",code=\"200\"} 2\n"));
+        assertTrue(text.contains("http_requests_total{method=\"HEAD\",code=\"404\"} 1\n"));
+        assertFalse(text.contains("http_requests_total{method=\"GET\",code=\"404\"}"));
+    }
+
+    @Test
+    public void trackActiveConnections() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.connectionOpened();
+        metrics.connectionOpened();
+        metrics.connectionClosed();
+        assertEquals(1, metrics.getActiveConnections());
+        assertTrue(metrics.scrape().contains("http_connections_active 1\n"));
+    }
+
+    @Test
+    public void writeCumulativeHistogramBuckets() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.getHandleTime().record(TimeUnit.MICROSECONDS.toNanos(10));
+        metrics.getHandleTime().record(TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.getHandleTime().record(TimeUnit.SECONDS.toNanos(20));
+        assertEquals(3, metrics.getHandleTime().getCount());
+
+        String text = metrics.scrape();
+        assertTrue(text.contains("# TYPE http_request_handle_seconds histogram\n"));
+        assertTrue(text.contains("http_request_handle_seconds_bucket{le=\"5.0E-5\"} 1\n"));
+        assertTrue(text.contains("http_request_handle_seconds_bucket{le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("http_request_handle_seconds_bucket{le=\"10.0\"} 2\n"));
+        assertTrue(text.contains("http_request_handle_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("http_request_handle_seconds_count 3\n"));
+    }
+}
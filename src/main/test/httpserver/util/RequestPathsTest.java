@@ -0,0 +1,36 @@
+package httpserver.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RequestPathsTest {
+
+    @Test
+    public void decodeStripsQueryAndFragment() {
+        assertEquals("/a b/\u00fc", RequestPaths.decode("/a%20b/%C3%BC?x=%zz#top"));
+        assertEquals("/", RequestPaths.decode("/?q"));
+    }
+
+    @Test
+    public void decodeRemovesDotSegments() {
+        assertEquals("/b", RequestPaths.decode("/a/../b"));
+        assertEquals("/a/", RequestPaths.decode("/a/b/.."));
+        assertEquals("/a/b", RequestPaths.decode("/a/./b"));
+        assertEquals("/a/", RequestPaths.decode("/a/%2e"));
+        assertEquals("/.hidden/..x", RequestPaths.decode("/.hidden/..x"));
+    }
+
+    @Test
+    public void rejectMalformedTargets() {
+        assertNull(RequestPaths.decode("*"));
+        assertNull(RequestPaths.decode(""));
+        assertNull(RequestPaths.decode("/%zz"));
+        assertNull(RequestPaths.decode("/%4"));
+        assertNull(RequestPaths.decode("/a%00"));
+        assertNull(RequestPaths.decode("/a%5cb"));
+        assertNull(RequestPaths.decode("/../secret"));
+        assertNull(RequestPaths.decode("/a/%2e%2e/%2e%2e/secret"));
+    }
+}